@@ -2,27 +2,135 @@ package com.ndogga.dddmolecules.aop.autoconfiguration;
 
 
 import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.DomainEventMetrics;
+import com.ndogga.dddmolecules.aop.AggregateSelfRegistration;
 import com.ndogga.dddmolecules.aop.DomainEventPublishingAspect;
+import com.ndogga.dddmolecules.aop.DomainEventRegistry;
 import com.ndogga.dddmolecules.aop.RepositoryEventTrackingAspect;
+import com.ndogga.dddmolecules.aop.TrackAggregatesAspect;
+import org.aspectj.lang.Aspects;
+import org.aspectj.lang.NoAspectBoundException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskDecorator;
 
+/**
+ * Auto-configuration of the domain event aspects.
+ * <p>
+ * Configuration properties:
+ * - domain.events.aop.tracking: all (default) tracks every repository-like method, annotated only tracks
+ *   the repositories annotated with @TrackAggregates, events lets aggregates enlist themselves when they
+ *   register an event, without any repository tracking aspect
+ * - domain.events.aop.weaving: proxy (default) applies the aspects with Spring AOP proxies, aspectj configures
+ *   the aspects woven by AspectJ at compile or load time, no proxy is created for them; with tracking=all,
+ *   the RepositoryEventTrackingAspect must be woven as well, see META-INF/aop-repository-tracking.xml
+ * - domain.events.aop.propagate-tracking: decorate Spring Boot's task executor so that its tasks join the
+ *   scope of the submitting thread (default: false)
+ * <p>
+ * Whether proxies are class-based follows spring.aop.proxy-target-class.
+ */
 @AutoConfiguration
-@EnableAspectJAutoProxy(proxyTargetClass = true)
 public class AopDomainEventPublishingAutoConfiguration {
 
+    /**
+     * Tasks submitted to Spring Boot's task executor during a @PublishDomainEvents method join its scope,
+     * unless the application declares its own task decorator. Opt-in, as it changes which scope publishes
+     * the events of aggregates tracked by these tasks.
+     */
     @Bean
-    @Order(50) // Run before the domain event publishing aspect (Order 100)
-    public RepositoryEventTrackingAspect repositoryEventTrackingAspect() {
-        return new RepositoryEventTrackingAspect();
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    @ConditionalOnProperty(prefix = "domain.events.aop", name = "propagate-tracking", havingValue = "true")
+    public TaskDecorator domainEventTrackingTaskDecorator() {
+        return DomainEventRegistry::wrap;
     }
 
+    /**
+     * Aggregates enlist themselves with the current scope as they register events, closed with the context.
+     */
     @Bean
-    @Order(100) // Run after transaction management aspects
-    public DomainEventPublishingAspect domainEventPublishingAspect(DomainEventCollector domainEventCollector) {
-        return new DomainEventPublishingAspect(domainEventCollector);
+    @ConditionalOnProperty(prefix = "domain.events.aop", name = "tracking", havingValue = "events")
+    public AggregateSelfRegistration aggregateSelfRegistration() {
+        return new AggregateSelfRegistration();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "domain.events.aop", name = "weaving", havingValue = "proxy", matchIfMissing = true)
+    @EnableAspectJAutoProxy
+    static class ProxyConfiguration {
+
+        @Bean
+        @Order(50) // Run before the domain event publishing aspect (Order 100)
+        @ConditionalOnProperty(prefix = "domain.events.aop", name = "tracking", havingValue = "all", matchIfMissing = true)
+        public RepositoryEventTrackingAspect repositoryEventTrackingAspect() {
+            return new RepositoryEventTrackingAspect();
+        }
+
+        @Bean
+        @Order(50) // Run before the domain event publishing aspect (Order 100)
+        @ConditionalOnProperty(prefix = "domain.events.aop", name = "tracking", havingValue = "annotated")
+        public TrackAggregatesAspect trackAggregatesAspect() {
+            return new TrackAggregatesAspect();
+        }
+
+        @Bean
+        @Order(100) // Run after transaction management aspects
+        public DomainEventPublishingAspect domainEventPublishingAspect(DomainEventCollector domainEventCollector,
+                                                                      ObjectProvider<DomainEventMetrics> metrics) {
+            DomainEventPublishingAspect aspect = new DomainEventPublishingAspect(domainEventCollector);
+            metrics.ifAvailable(aspect::setMetrics);
+            return aspect;
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "domain.events.aop", name = "weaving", havingValue = "aspectj")
+    static class WeavingConfiguration {
+
+        /**
+         * The woven aspects are AspectJ singletons, not beans: hand them the collector once every bean is created.
+         */
+        @Bean
+        public SmartInitializingSingleton domainEventAspectsConfigurer(DomainEventCollector domainEventCollector,
+                                                                       ObjectProvider<DomainEventMetrics> metrics) {
+            return () -> {
+                DomainEventPublishingAspect aspect = aspectOf(DomainEventPublishingAspect.class,
+                        "domain.events.aop.weaving=aspectj requires the domain event aspects to be woven, "
+                                + "at compile time or with the AspectJ weaver agent");
+                metrics.ifAvailable(aspect::setMetrics);
+                aspect.setDomainEventCollector(domainEventCollector);
+            };
+        }
+
+        /**
+         * The bundled aop.xml only weaves the annotated repository tracking: without the catch-all aspect,
+         * tracking=all would silently track annotated repositories only.
+         */
+        @Bean
+        @ConditionalOnProperty(prefix = "domain.events.aop", name = "tracking", havingValue = "all", matchIfMissing = true)
+        public SmartInitializingSingleton repositoryEventTrackingAspectVerifier() {
+            return () -> aspectOf(RepositoryEventTrackingAspect.class,
+                    "domain.events.aop.tracking=all with domain.events.aop.weaving=aspectj requires the RepositoryEventTrackingAspect "
+                            + "to be woven: add META-INF/aop-repository-tracking.xml to the weaver configuration, e.g. "
+                            + "-Dorg.aspectj.weaver.loadtime.configuration=META-INF/aop.xml;META-INF/aop-repository-tracking.xml, "
+                            + "or set domain.events.aop.tracking=annotated");
+        }
+
+        private static <T> T aspectOf(Class<T> aspectType, String requirement) {
+            try {
+                return Aspects.aspectOf(aspectType);
+            } catch (NoAspectBoundException e) {
+                throw new IllegalStateException(requirement, e);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,34 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import com.ndogga.dddmolecules.DomainEventRegistrationListener;
+
+/**
+ * Push-based tracking: while open, every aggregate registering a domain event during a scope enlists itself
+ * with the {@link DomainEventRegistry}, whether or not it goes through a repository.
+ * 
+ * No intercepted call has to pass or return the aggregate, so no repository tracking aspect is needed and
+ * no argument or result is inspected. Events must be registered on the thread of the scope, or in a task
+ * that joined it, see {@link DomainEventRegistry#wrap(Runnable)}.
+ * 
+ * The listener is installed globally on {@link AggregateRoot}; closing restores no listener, unless another
+ * one has been installed since.
+ */
+public class AggregateSelfRegistration implements AutoCloseable {
+
+    private final DomainEventRegistrationListener listener = DomainEventRegistry::registerAggregateWithEvents;
+
+    /**
+     * Install the registration listener enlisting aggregates with the current scope.
+     */
+    public AggregateSelfRegistration() {
+        AggregateRoot.setRegistrationListener(listener);
+    }
+
+    @Override
+    public void close() {
+        if (AggregateRoot.getRegistrationListener() == listener) {
+            AggregateRoot.setRegistrationListener(null);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import com.ndogga.dddmolecules.jfr.TrackEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+
+import java.util.Collection;
+
+/**
+ * Tracking of the aggregates passed to and returned by an intercepted repository call, shared by
+ * {@link RepositoryEventTrackingAspect} and {@link TrackAggregatesAspect}, which only differ by the calls they match.
+ * Each tracked call is recorded as a {@link TrackEvent} for the flight recorder.
+ */
+@Slf4j
+final class AggregateTracking {
+
+    private AggregateTracking() {
+    }
+
+    /**
+     * Proceed with the call, registering the aggregates of its arguments and result if tracking is active.
+     */
+    static Object proceed(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Only track if domain event tracking is active
+        if (!DomainEventRegistry.isTrackingActive()) {
+            return joinPoint.proceed();
+        }
+        
+        TrackEvent recording = new TrackEvent();
+        recording.begin();
+        int aggregateCount = 0;
+        
+        // Check method parameters for AggregateRoot instances (for save operations)
+        Object[] args = joinPoint.getArgs();
+        if (args != null) {
+            for (Object arg : args) {
+                aggregateCount += trackAggregateParameter(arg);
+            }
+        }
+        
+        // Execute the repository method
+        Object result = joinPoint.proceed();
+        
+        // Track aggregates in the result (for find/load operations)
+        aggregateCount += trackAggregateResult(result);
+        
+        if (recording.shouldCommit()) {
+            recording.method = joinPoint.getSignature().toShortString();
+            recording.aggregateCount = aggregateCount;
+            recording.commit();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Tracks AggregateRoot parameters passed to repository methods.
+     * This captures save operations where aggregates may have generated domain events.
+     * @return the number of aggregates found
+     */
+    private static int trackAggregateParameter(Object parameter) {
+        if (parameter == null) {
+            return 0;
+        }
+        
+        int count = 0;
+        try {
+            if (parameter instanceof AggregateRoot<?> aggregate) {
+                // Single aggregate parameter
+                DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                count++;
+                
+            } else if (parameter instanceof Collection<?> collection) {
+                // Collection of aggregates (for saveAll operations)
+                for (Object item : collection) {
+                    if (item instanceof AggregateRoot<?> aggregate) {
+                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                        count++;
+                    }
+                }
+                
+            } else if (parameter.getClass().isArray() && parameter instanceof Object[]) {
+                // Array of aggregates
+                Object[] array = (Object[]) parameter;
+                for (Object item : array) {
+                    if (item instanceof AggregateRoot<?> aggregate) {
+                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                        count++;
+                    }
+                }
+            }
+            
+        } catch (Exception e) {
+            // Don't let tracking errors break the application
+            log.warn("Error while tracking aggregate parameter: {}", e.getMessage());
+        }
+        return count;
+    }
+    
+    /**
+     * Tracks AggregateRoot instances returned from repository methods.
+     * This captures find/load operations where loaded aggregates may already have domain events.
+     * @return the number of aggregates found
+     */
+    private static int trackAggregateResult(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        
+        int count = 0;
+        try {
+            if (result instanceof AggregateRoot<?> aggregate) {
+                // Single aggregate result
+                DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                count++;
+                
+            } else if (result instanceof Collection<?> collection) {
+                // Collection of aggregates
+                for (Object item : collection) {
+                    if (item instanceof AggregateRoot<?> aggregate) {
+                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                        count++;
+                    }
+                }
+                
+            } else if (result instanceof java.util.Optional<?> optional) {
+                // Optional aggregate
+                if (optional.orElse(null) instanceof AggregateRoot<?> aggregate) {
+                    DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                    count++;
+                }
+                
+            } else if (result.getClass().isArray() && result instanceof Object[]) {
+                // Array of aggregates
+                Object[] array = (Object[]) result;
+                for (Object item : array) {
+                    if (item instanceof AggregateRoot<?> aggregate) {
+                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
+                        count++;
+                    }
+                }
+            }
+            
+        } catch (Exception e) {
+            // Don't let tracking errors break the application
+            log.warn("Error while tracking aggregate result: {}", e.getMessage());
+        }
+        return count;
+    }
+}
\ No newline at end of file
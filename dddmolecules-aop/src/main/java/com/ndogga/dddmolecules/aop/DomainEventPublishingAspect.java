@@ -2,13 +2,16 @@ package com.ndogga.dddmolecules.aop;
 
 import com.ndogga.dddmolecules.AggregateRoot;
 import com.ndogga.dddmolecules.DomainEventCollector;
-import lombok.RequiredArgsConstructor;
+import com.ndogga.dddmolecules.DomainEventMetrics;
+import com.ndogga.dddmolecules.jfr.ScopeEvent;
+import com.ndogga.dddmolecules.jfr.TypeNames;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Unified AOP Aspect that automatically publishes domain events from aggregates
@@ -21,6 +24,10 @@ import java.util.ArrayList;
  * 4. Publish the events using the configured DomainEventCollector
  * 5. Ensure proper cleanup of ThreadLocal resources
  * 
+ * Scopes nest: a @PublishDomainEvents method called from another one joins its scope. Its aggregates
+ * are published once, by the outermost scope, after the outermost method returns; nested scopes are
+ * neither measured nor recorded, they are part of the outermost one.
+ * 
  * The aspect automatically captures aggregates loaded/saved during method execution
  * through repository calls, eliminating the need to scan method parameters or fields.
  * 
@@ -28,67 +35,140 @@ import java.util.ArrayList;
  * - domain.events.aop.enabled: Enable/disable the aspect (default: true)
  * - domain.events.aop.log-performance: Log execution times (default: false)
  * 
+ * Each scope, and the number of aggregates it tracked, is reported to the {@link DomainEventMetrics} when set,
+ * and recorded as a {@link ScopeEvent} for the flight recorder.
+ * 
  * Order is set to run after transaction management but before repository tracking.
+ * 
+ * When woven by AspectJ rather than applied by Spring AOP proxies, the aspect is instantiated by AspectJ
+ * and its collector is set once the application is ready; methods called before that are not intercepted.
  */
 @Slf4j
 @Aspect
-@RequiredArgsConstructor
 public class DomainEventPublishingAspect {
     
-    private final DomainEventCollector domainEventCollector;
+    private volatile DomainEventCollector domainEventCollector;
+    
+    private DomainEventMetrics metrics = DomainEventMetrics.NONE;
+    
+    /**
+     * Create the aspect without a collector, as AspectJ does when weaving it.
+     */
+    public DomainEventPublishingAspect() {
+    }
     
-    @Around("@annotation(com.ndogga.dddmolecules.PublishDomainEvents)")
+    public DomainEventPublishingAspect(DomainEventCollector domainEventCollector) {
+        this.domainEventCollector = domainEventCollector;
+    }
+    
+    /**
+     * Publish the events collected by the scopes through the given collector.
+     * @param domainEventCollector the collector
+     */
+    public void setDomainEventCollector(DomainEventCollector domainEventCollector) {
+        this.domainEventCollector = domainEventCollector;
+    }
+    
+    /**
+     * Report each scope to the given metrics.
+     * @param metrics the metrics, {@link DomainEventMetrics#NONE} by default
+     */
+    public void setMetrics(DomainEventMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    // Restricted to executions, AspectJ weaving would otherwise advise the call sites as well
+    @Around("execution(* *(..)) && @annotation(com.ndogga.dddmolecules.PublishDomainEvents)")
     public Object publishDomainEvents(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
+        DomainEventCollector domainEventCollector = this.domainEventCollector;
+        if (domainEventCollector == null) {
+            return joinPoint.proceed();
+        }
+        
+        boolean timed = metrics.isEnabled() || log.isDebugEnabled();
+        long startTime = timed ? System.nanoTime() : 0;
         String methodName = joinPoint.getSignature().getName();
+        ScopeEvent recording = new ScopeEvent();
+        recording.begin();
         
         log.debug("Intercepting method {} for domain event publishing", methodName);
         
-        // Start tracking domain events for this method execution
-        DomainEventRegistry.startTracking();
+        // Start tracking domain events for this method execution, or join the scope of the calling method
+        boolean outermost = DomainEventRegistry.startTracking();
         
+        Object result;
         try {
             // Execute the original method (repository aspects will track aggregates)
-            Object result = joinPoint.proceed();
+            result = joinPoint.proceed();
             
             // If the result is an aggregate with events, register it too
             if (result instanceof AggregateRoot<?> aggregate) {
                 DomainEventRegistry.registerAggregateWithEvents(aggregate);
             }
-            
-            // Get all tracked aggregates and publish their events
-            var trackedAggregates = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
-            
+        } catch (Throwable ex) {
+            // Ensure cleanup even if method fails, a nested scope leaves the outer scope tracking
+            log.warn("Exception in method {}, cleaning up domain event tracking", methodName);
+            DomainEventRegistry.abortTracking();
+            if (outermost && recording.shouldCommit()) {
+                commit(recording, joinPoint, true);
+            }
+            throw ex;
+        }
+        
+        // Get all tracked aggregates, nested scopes leave them to the outermost scope
+        var trackedAggregates = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        if (!outermost) {
+            log.debug("Method {} runs in an enclosing scope, its domain events are published by that scope", methodName);
+            return result;
+        }
+        
+        try {
             if (!trackedAggregates.isEmpty()) {
-                long eventStartTime = System.currentTimeMillis();
+                long eventStartTime = timed || recording.isEnabled() ? System.nanoTime() : 0;
                 
                 log.debug("Publishing domain events from {} tracked aggregates in method {}", 
                         trackedAggregates.size(), methodName);
                 
-                domainEventCollector.collectAndPublish(new ArrayList<>(trackedAggregates));
+                domainEventCollector.collectAndPublish(trackedAggregates);
                 
+                if (recording.isEnabled()) {
+                    recording.collectDuration = System.nanoTime() - eventStartTime;
+                }
                 if (log.isDebugEnabled()) {
-                    long eventEndTime = System.currentTimeMillis();
                     log.debug("Event publishing took {} ms for method {}", 
-                            eventEndTime - eventStartTime, methodName);
+                            (System.nanoTime() - eventStartTime) / 1_000_000.0, methodName);
                 }
             } else {
                 log.debug("No aggregates with domain events found in method {}", methodName);
             }
-            
-            if (log.isDebugEnabled()) {
-                long endTime = System.currentTimeMillis();
-                log.debug("Total AOP processing took {} ms for method {}", 
-                        endTime - startTime, methodName);
-            }
-            
-            return result;
-            
         } catch (Throwable ex) {
-            // Ensure cleanup even if method fails
-            log.warn("Exception in method {}, cleaning up domain event tracking", methodName);
-            DomainEventRegistry.forceCleanup();
+            if (recording.shouldCommit()) {
+                commit(recording, joinPoint, true);
+            }
             throw ex;
         }
+        
+        if (timed) {
+            long duration = System.nanoTime() - startTime;
+            if (metrics.isEnabled()) {
+                metrics.recordScope(trackedAggregates.size(), duration);
+            }
+            log.debug("Total AOP processing took {} ms for method {}", duration / 1_000_000.0, methodName);
+        }
+        if (recording.shouldCommit()) {
+            Set<Class<?>> aggregateTypes = new LinkedHashSet<>();
+            trackedAggregates.forEach(aggregate -> aggregateTypes.add(aggregate.getClass()));
+            recording.trackedAggregates = trackedAggregates.size();
+            recording.aggregateTypes = TypeNames.of(aggregateTypes);
+            commit(recording, joinPoint, false);
+        }
+        
+        return result;
+    }
+    
+    private static void commit(ScopeEvent recording, ProceedingJoinPoint joinPoint, boolean failed) {
+        recording.method = joinPoint.getSignature().toShortString();
+        recording.failed = failed;
+        recording.commit();
     }
 }
\ No newline at end of file
@@ -3,78 +3,367 @@ package com.ndogga.dddmolecules.aop;
 import com.ndogga.dddmolecules.AggregateRoot;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 /**
  * ThreadLocal registry that tracks aggregates with domain events during method execution.
  * This allows the domain event publishing aspects to capture aggregates that are loaded
  * and modified within annotated methods, regardless of how they are loaded (repositories, factories, etc.).
- * 
- * The registry automatically manages the ThreadLocal lifecycle to prevent memory leaks.
+ *
+ * Each thread holds a single tracking context, reused from one scope to the next instead of being
+ * reallocated. Aggregates are tracked by identity, whatever their equals and hashCode, and drained in
+ * the order they were first registered, so events of different aggregates are published in a
+ * deterministic order.
+ *
+ * Scopes are reentrant: a scope started while another is active on the same thread is nested in it.
+ * Aggregates tracked by a nested scope stay tracked, only the outermost scope drains them, once.
+ *
+ * Tasks run on other threads during a scope join it when wrapped with {@link #wrap(Runnable)} and its
+ * overloads, or submitted to an executor wrapped with {@link #propagating(ExecutorService)}. The same
+ * applies to subtasks forked in a StructuredTaskScope, e.g. {@code scope.fork(DomainEventRegistry.wrap(task))}.
+ * Aggregates tracked by these tasks are published once by the scope they joined. A task only registers
+ * into that scope, its own scopes nest on its own thread and never end the joined one. Once the joined
+ * scope ended, aggregates are left to the task's own scope if it runs one, otherwise they are not tracked.
+ *
+ * Aggregates are registered by the repository tracking aspects, or by the aggregates themselves as they
+ * register events when {@link AggregateSelfRegistration} is open.
+ *
+ * A virtual thread usually runs a single scope, so its context is not kept once the scope ends:
+ * the registry holds no state for idle virtual threads.
  */
 @Slf4j
 public class DomainEventRegistry {
-    
-    private static final ThreadLocal<Set<AggregateRoot<?>>> AGGREGATES_WITH_EVENTS = 
-        ThreadLocal.withInitial(HashSet::new);
-    
-    private static final ThreadLocal<Boolean> TRACKING_ACTIVE = 
-        ThreadLocal.withInitial(() -> false);
-    
+
+    private static final ThreadLocal<TrackingContext> CONTEXT = new ThreadLocal<>();
+
     /**
-     * Starts event tracking for the current thread.
-     * This should be called at the beginning of a @PublishDomainEvents method.
+     * Starts event tracking for the current thread, or enters a nested scope if tracking is already active.
+     * This should be called at the beginning of a @PublishDomainEvents method, and always be matched by
+     * {@link #getTrackedAggregatesAndStopTracking()} or {@link #abortTracking()}.
+     *
+     * @return true if this is the outermost scope, the one whose aggregates are drained
      */
-    public static void startTracking() {
-        TRACKING_ACTIVE.set(true);
-        AGGREGATES_WITH_EVENTS.get().clear();
+    public static boolean startTracking() {
+        TrackingContext context = CONTEXT.get();
+        if (context == null) {
+            context = new TrackingContext();
+            CONTEXT.set(context);
+        }
+        if (!context.enter()) {
+            log.debug("Entered nested domain event tracking scope");
+            return false;
+        }
         log.debug("Started domain event tracking for thread {}", Thread.currentThread().getName());
+        return true;
     }
-    
+
     /**
      * Registers an aggregate that has domain events.
-     * Only registers if tracking is currently active.
+     * Only registers if tracking is currently active, and only once per aggregate instance.
      */
     public static void registerAggregateWithEvents(AggregateRoot<?> aggregate) {
-        if (aggregate != null && TRACKING_ACTIVE.get() && aggregate.hasDomainEvents()) {
-            AGGREGATES_WITH_EVENTS.get().add(aggregate);
-            log.debug("Registered aggregate {} with {} domain events", 
-                    aggregate.getClass().getSimpleName(), aggregate.getDomainEvents().size());
+        if (aggregate == null || !aggregate.hasDomainEvents()) {
+            return;
+        }
+
+        TrackingContext context = CONTEXT.get();
+        if (context != null && Boolean.TRUE.equals(context.register(aggregate))) {
+            log.debug("Registered aggregate {} with {} domain events",
+                    aggregate.getClass().getSimpleName(), aggregate.getDomainEventCount());
         }
     }
-    
+
     /**
-     * Gets all tracked aggregates and stops tracking.
+     * Gets all tracked aggregates and stops tracking, or leaves the current nested scope.
      * This should be called at the end of a @PublishDomainEvents method.
-     * 
-     * @return Set of aggregates with domain events, never null
+     *
+     * @return the aggregates with domain events in registration order, never null, empty when leaving
+     *         a nested scope; the list belongs to the caller, later scopes do not modify it
+     */
+    public static List<AggregateRoot<?>> getTrackedAggregatesAndStopTracking() {
+        TrackingContext context = CONTEXT.get();
+        if (context == null || !context.leave()) {
+            return List.of();
+        }
+
+        List<AggregateRoot<?>> aggregates = context.drain();
+        release(context);
+        log.debug("Retrieved {} tracked aggregates with domain events", aggregates.size());
+        return aggregates;
+    }
+
+    /**
+     * Leaves the current scope after a failure. A nested scope leaves its aggregates tracked for the
+     * outermost scope, which may still complete; the outermost scope discards them.
      */
-    public static Set<AggregateRoot<?>> getTrackedAggregatesAndStopTracking() {
-        try {
-            Set<AggregateRoot<?>> aggregates = new HashSet<>(AGGREGATES_WITH_EVENTS.get());
-            log.debug("Retrieved {} tracked aggregates with domain events", aggregates.size());
-            return aggregates;
-        } finally {
-            // Always clean up ThreadLocal to prevent memory leaks
-            TRACKING_ACTIVE.remove();
-            AGGREGATES_WITH_EVENTS.remove();
-        }
-    }
-    
+    public static void abortTracking() {
+        TrackingContext context = CONTEXT.get();
+        if (context == null || !context.leave()) {
+            return;
+        }
+
+        context.drain();
+        release(context);
+    }
+
     /**
      * Checks if event tracking is currently active for this thread.
      */
     public static boolean isTrackingActive() {
-        return TRACKING_ACTIVE.get();
+        TrackingContext context = CONTEXT.get();
+        return context != null && context.isActive();
     }
-    
+
     /**
-     * Emergency cleanup method to ensure ThreadLocal is cleared.
-     * This is called as a safety measure to prevent memory leaks.
+     * Emergency cleanup method to ensure no aggregate is kept tracked.
+     * This is called as a safety measure to prevent memory leaks, it also ends every nested scope.
      */
     public static void forceCleanup() {
-        TRACKING_ACTIVE.remove();
-        AGGREGATES_WITH_EVENTS.remove();
+        CONTEXT.remove();
+    }
+
+    /**
+     * Wraps a task so that it joins the current scope on whatever thread it runs.
+     *
+     * @return the wrapped task, or the task itself if tracking is not active
+     */
+    public static Runnable wrap(Runnable task) {
+        TrackingContext context = capture();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            TrackingContext previous = bind(new TrackingContext(context));
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that it joins the current scope on whatever thread it runs.
+     *
+     * @return the wrapped task, or the task itself if tracking is not active
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        TrackingContext context = capture();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            TrackingContext previous = bind(new TrackingContext(context));
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a supplier, e.g. of CompletableFuture.supplyAsync, so that it joins the current scope
+     * on whatever thread it runs.
+     *
+     * @return the wrapped supplier, or the supplier itself if tracking is not active
+     */
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        TrackingContext context = capture();
+        if (context == null) {
+            return supplier;
+        }
+        return () -> {
+            TrackingContext previous = bind(new TrackingContext(context));
+            try {
+                return supplier.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps an executor so that tasks submitted during a scope join it.
+     */
+    public static Executor propagating(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * Wraps an executor service so that tasks submitted during a scope join it.
+     * Shutting down the returned executor service shuts down the given one.
+     */
+    public static ExecutorService propagating(ExecutorService executorService) {
+        return new PropagatingExecutorService(executorService);
+    }
+
+    private static TrackingContext capture() {
+        TrackingContext context = CONTEXT.get();
+        if (context == null || !context.isActive()) {
+            return null;
+        }
+        context.shared = true;
+        return context;
+    }
+
+    private static TrackingContext bind(TrackingContext context) {
+        TrackingContext previous = CONTEXT.get();
+        CONTEXT.set(context);
+        return previous;
+    }
+
+    private static void restore(TrackingContext previous) {
+        if (previous != null) {
+            CONTEXT.set(previous);
+        } else {
+            CONTEXT.remove();
+        }
+    }
+
+    private static void release(TrackingContext context) {
+        if (context.joined != null) {
+            // The task keeps joining the same scope until it returns, late subtasks keep the context they were handed
+            if (context.shared) {
+                CONTEXT.set(new TrackingContext(context.joined));
+            }
+            return;
+        }
+        // A context shared with other threads may still be bound to late tasks, it is never reused
+        if (context.shared || Thread.currentThread().isVirtual()) {
+            CONTEXT.remove();
+        }
+    }
+
+    /**
+     * Tracked aggregates of the current scope, in registration order.
+     * Small scopes check membership by scanning the list, larger ones through an identity map.
+     *
+     * Once shared with other threads, its aggregates are registered concurrently: every access to
+     * them is synchronized, which costs a single uncontended lock per registration on one thread.
+     *
+     * A propagated task binds a context of its own, joining the context of the submitting thread:
+     * its scopes are counted on its own depth, only its registrations go to the joined context.
+     */
+    private static final class TrackingContext {
+
+        private static final int SCAN_THRESHOLD = 8;
+
+        // Beyond this size, the identity map is dropped rather than cleared so it does not stay oversized
+        private static final int RETAINED_INDEX_SIZE = 256;
+
+        private static final List<AggregateRoot<?>> NONE = List.of();
+
+        // Context of the submitting thread joined by a propagated task, null for a thread's own context
+        private final TrackingContext joined;
+
+        private volatile boolean active;
+
+        // Set by the owning thread before the context is handed over to another thread
+        private volatile boolean shared;
+
+        // Number of scopes entered and not left yet, the outermost one included
+        private int depth;
+
+        // Handed over to the caller on drain, allocated again on the first registration of the next scope
+        private List<AggregateRoot<?>> aggregates = NONE;
+
+        private Map<AggregateRoot<?>, Boolean> index;
+
+        TrackingContext() {
+            this(null);
+        }
+
+        TrackingContext(TrackingContext joined) {
+            this.joined = joined;
+        }
+
+        boolean isActive() {
+            return active || joined != null && joined.isActive();
+        }
+
+        synchronized boolean enter() {
+            if (depth++ > 0) {
+                return false;
+            }
+            active = true;
+            aggregates = NONE;
+            clearIndex();
+            return true;
+        }
+
+        synchronized boolean leave() {
+            return --depth <= 0;
+        }
+
+        /**
+         * @return true if the aggregate was not tracked yet, false if it was, null if no scope is active
+         */
+        synchronized Boolean register(AggregateRoot<?> aggregate) {
+            // The joined scope takes the aggregate while it lasts, this one only what it can no longer take
+            if (joined != null) {
+                Boolean registered = joined.register(aggregate);
+                if (registered != null) {
+                    return registered;
+                }
+            }
+            if (!active) {
+                return null;
+            }
+            if (contains(aggregate)) {
+                return false;
+            }
+
+            if (aggregates == NONE) {
+                aggregates = new ArrayList<>();
+            }
+            aggregates.add(aggregate);
+            if (index != null) {
+                index.put(aggregate, Boolean.TRUE);
+            } else if (aggregates.size() > SCAN_THRESHOLD) {
+                index = new IdentityHashMap<>();
+                aggregates.forEach(tracked -> index.put(tracked, Boolean.TRUE));
+            }
+            return true;
+        }
+
+        synchronized List<AggregateRoot<?>> drain() {
+            List<AggregateRoot<?>> drained = aggregates;
+            active = false;
+            depth = 0;
+            aggregates = NONE;
+            clearIndex();
+            return drained;
+        }
+
+        private boolean contains(AggregateRoot<?> aggregate) {
+            if (index != null) {
+                return index.containsKey(aggregate);
+            }
+            for (AggregateRoot<?> tracked : aggregates) {
+                if (tracked == aggregate) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void clearIndex() {
+            if (index == null) {
+                return;
+            }
+            if (index.size() > RETAINED_INDEX_SIZE) {
+                index = null;
+            } else {
+                index.clear();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.ndogga.dddmolecules.aop;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExecutorService} running the tasks submitted during a domain event tracking scope in that scope,
+ * see {@link DomainEventRegistry#propagating(ExecutorService)}. Every submission method goes through
+ * {@link #execute(Runnable)}, which captures the scope of the submitting thread.
+ */
+class PropagatingExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    PropagatingExecutorService(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(DomainEventRegistry.wrap(command));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -1,12 +1,9 @@
 package com.ndogga.dddmolecules.aop;
 
-import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import com.ndogga.dddmolecules.AggregateRoot;
-
-import java.util.Collection;
+import com.ndogga.dddmolecules.jfr.TrackEvent;
 
 /**
  * AOP Aspect that intercepts repository method calls to automatically track
@@ -22,8 +19,12 @@ import java.util.Collection;
  * 
  * It registers any AggregateRoot instances that have domain events with the DomainEventRegistry,
  * but only when domain event tracking is active (i.e., during @PublishDomainEvents execution).
+ * Each tracked call is recorded as a {@link TrackEvent} for the flight recorder.
+ * 
+ * Matching every such method proxies a large part of the application context; to only track the
+ * repositories annotated with {@link com.ndogga.dddmolecules.TrackAggregates}, use {@link TrackAggregatesAspect} instead.
+ * When woven by AspectJ at load time, the aspect is declared in META-INF/aop-repository-tracking.xml, apart from aop.xml.
  */
-@Slf4j
 @Aspect
 public class RepositoryEventTrackingAspect {
     
@@ -39,110 +40,6 @@ public class RepositoryEventTrackingAspect {
             "execution(java.util.Collection<com.ndogga.dddmolecules.AggregateRoot+> *(..)) || " +
             "execution(java.util.Optional<com.ndogga.dddmolecules.AggregateRoot+> *(..)))")
     public Object trackRepositoryOperations(ProceedingJoinPoint joinPoint) throws Throwable {
-        
-        // Only track if domain event tracking is active
-        if (!DomainEventRegistry.isTrackingActive()) {
-            return joinPoint.proceed();
-        }
-        
-        // Check method parameters for AggregateRoot instances (for save operations)
-        Object[] args = joinPoint.getArgs();
-        if (args != null) {
-            for (Object arg : args) {
-                trackAggregateParameter(arg);
-            }
-        }
-        
-        // Execute the repository method
-        Object result = joinPoint.proceed();
-        
-        // Track aggregates in the result (for find/load operations)
-        trackAggregateResult(result);
-        
-        return result;
-    }
-    
-    /**
-     * Tracks AggregateRoot parameters passed to repository methods.
-     * This captures save operations where aggregates may have generated domain events.
-     */
-    private void trackAggregateParameter(Object parameter) {
-        if (parameter == null) {
-            return;
-        }
-        
-        try {
-            if (parameter instanceof AggregateRoot<?> aggregate) {
-                // Single aggregate parameter
-                DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                
-            } else if (parameter instanceof Collection<?> collection) {
-                // Collection of aggregates (for saveAll operations)
-                for (Object item : collection) {
-                    if (item instanceof AggregateRoot<?> aggregate) {
-                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                    }
-                }
-                
-            } else if (parameter.getClass().isArray() && parameter instanceof Object[]) {
-                // Array of aggregates
-                Object[] array = (Object[]) parameter;
-                for (Object item : array) {
-                    if (item instanceof AggregateRoot<?> aggregate) {
-                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                    }
-                }
-            }
-            
-        } catch (Exception e) {
-            // Don't let tracking errors break the application
-            log.warn("Error while tracking aggregate parameter: {}", e.getMessage());
-        }
-    }
-    
-    /**
-     * Tracks AggregateRoot instances returned from repository methods.
-     * This captures find/load operations where loaded aggregates may already have domain events.
-     */
-    private void trackAggregateResult(Object result) {
-        if (result == null) {
-            return;
-        }
-        
-        try {
-            if (result instanceof AggregateRoot<?> aggregate) {
-                // Single aggregate result
-                DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                
-            } else if (result instanceof Collection<?> collection) {
-                // Collection of aggregates
-                for (Object item : collection) {
-                    if (item instanceof AggregateRoot<?> aggregate) {
-                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                    }
-                }
-                
-            } else if (result instanceof java.util.Optional<?> optional) {
-                // Optional aggregate
-                optional.ifPresent(value -> {
-                    if (value instanceof AggregateRoot<?> aggregate) {
-                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                    }
-                });
-                
-            } else if (result.getClass().isArray() && result instanceof Object[]) {
-                // Array of aggregates
-                Object[] array = (Object[]) result;
-                for (Object item : array) {
-                    if (item instanceof AggregateRoot<?> aggregate) {
-                        DomainEventRegistry.registerAggregateWithEvents(aggregate);
-                    }
-                }
-            }
-            
-        } catch (Exception e) {
-            // Don't let tracking errors break the application
-            log.warn("Error while tracking aggregate result: {}", e.getMessage());
-        }
+        return AggregateTracking.proceed(joinPoint);
     }
-}
\ No newline at end of file
+}
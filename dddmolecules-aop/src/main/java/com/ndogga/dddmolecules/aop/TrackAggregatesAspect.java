@@ -0,0 +1,24 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.TrackAggregates;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * AOP Aspect tracking aggregates like {@link RepositoryEventTrackingAspect}, but only on the repositories
+ * annotated with {@link TrackAggregates}: methods of annotated types and of their subtypes, and annotated methods.
+ * 
+ * Other beans are left alone, so only the repositories are proxied and no other call pays for an advice.
+ * The aspect can also be woven by AspectJ at compile or load time, without any proxy, see the aop.xml
+ * of this module.
+ */
+@Aspect
+public class TrackAggregatesAspect {
+
+    @Around("execution(* (@com.ndogga.dddmolecules.TrackAggregates *)+.*(..)) || " +
+            "execution(@com.ndogga.dddmolecules.TrackAggregates * *(..))")
+    public Object trackAnnotatedRepositoryOperations(ProceedingJoinPoint joinPoint) throws Throwable {
+        return AggregateTracking.proceed(joinPoint);
+    }
+}
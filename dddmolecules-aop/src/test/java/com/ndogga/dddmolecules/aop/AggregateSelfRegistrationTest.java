@@ -0,0 +1,96 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import com.ndogga.dddmolecules.DomainEventRegistrationListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregateSelfRegistrationTest {
+
+    @AfterEach
+    void cleanUp() {
+        AggregateRoot.setRegistrationListener(null);
+        DomainEventRegistry.forceCleanup();
+    }
+
+    @Test
+    void tracksAggregatesRegisteringEventsInAScopeOnce() {
+        try (AggregateSelfRegistration ignored = new AggregateSelfRegistration()) {
+            TestOrder first = new TestOrder(1);
+            TestOrder second = new TestOrder(2);
+
+            DomainEventRegistry.startTracking();
+            // No repository is called, the aggregates enlist themselves
+            first.place();
+            second.place();
+            first.place();
+
+            assertEquals(List.of(first, second), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+            assertEquals(2, first.getDomainEventCount());
+        }
+    }
+
+    @Test
+    void tracksNothingOutsideAScope() {
+        try (AggregateSelfRegistration ignored = new AggregateSelfRegistration()) {
+            TestOrder before = new TestOrder(1).place();
+
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+            // The context of the ended scope may be kept for the next one, it tracks nothing meanwhile
+            TestOrder between = new TestOrder(2).place();
+
+            DomainEventRegistry.startTracking();
+            assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+            assertTrue(before.hasDomainEvents());
+            assertTrue(between.hasDomainEvents());
+        }
+    }
+
+    @Test
+    void tracksAggregatesRegisteringEventsInTasksThatJoinedTheScope() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AggregateSelfRegistration ignored = new AggregateSelfRegistration()) {
+            TestOrder order = new TestOrder(1);
+
+            DomainEventRegistry.startTracking();
+            executor.submit(DomainEventRegistry.wrap(() -> {
+                order.place();
+            })).get();
+
+            assertEquals(List.of(order), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeRemovesItsListener() {
+        AggregateSelfRegistration registration = new AggregateSelfRegistration();
+
+        registration.close();
+
+        assertNull(AggregateRoot.getRegistrationListener());
+    }
+
+    @Test
+    void closeKeepsAListenerInstalledLater() {
+        AggregateSelfRegistration registration = new AggregateSelfRegistration();
+        DomainEventRegistrationListener later = aggregate -> {
+        };
+        AggregateRoot.setRegistrationListener(later);
+
+        registration.close();
+
+        assertSame(later, AggregateRoot.getRegistrationListener());
+    }
+}
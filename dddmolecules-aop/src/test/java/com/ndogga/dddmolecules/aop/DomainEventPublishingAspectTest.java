@@ -0,0 +1,113 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.PublishDomainEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DomainEventPublishingAspectTest {
+
+    private final List<List<AggregateRoot<?>>> publications = new ArrayList<>();
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void proxyOrderService() {
+        DomainEventCollector collector = new DomainEventCollector() {
+            @Override
+            public void collectAndPublish(AggregateRoot<?> aggregateRoot) {
+                publications.add(List.of(aggregateRoot));
+            }
+
+            @Override
+            public void collectAndPublish(List<? extends AggregateRoot<?>> aggregateRoots) {
+                publications.add(List.copyOf(aggregateRoots));
+            }
+        };
+
+        OrderService target = new OrderService();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new DomainEventPublishingAspect(collector));
+        orderService = factory.getProxy();
+        // Nested calls go through the proxy, as they would through an injected bean
+        target.self = orderService;
+    }
+
+    @AfterEach
+    void cleanUp() {
+        DomainEventRegistry.forceCleanup();
+    }
+
+    @Test
+    void publishesTheAggregatesOfAScope() {
+        TestOrder order = orderService.place(1);
+
+        assertEquals(List.of(List.of(order)), publications);
+    }
+
+    @Test
+    void publishesNestedScopesOnceWithTheOutermostScope() {
+        List<TestOrder> orders = orderService.placeBoth(1, 2);
+
+        assertEquals(List.of(List.<AggregateRoot<?>>copyOf(orders)), publications);
+        assertFalse(DomainEventRegistry.isTrackingActive());
+    }
+
+    @Test
+    void publishesTheAggregatesOfNestedScopesThatFailed() {
+        orderService.placeDespiteFailure(1, 2);
+
+        assertEquals(1, publications.size());
+        assertEquals(List.of(1L, 2L), publications.get(0).stream().map(AggregateRoot::getId).toList());
+    }
+
+    @Test
+    void publishesNothingWhenTheOutermostScopeFails() {
+        assertThrows(IllegalStateException.class, () -> orderService.placeAndFail(1));
+
+        assertEquals(List.of(), publications);
+        assertFalse(DomainEventRegistry.isTrackingActive());
+    }
+
+    public static class OrderService {
+
+        OrderService self;
+
+        @PublishDomainEvents
+        public TestOrder place(long id) {
+            return new TestOrder(id).place();
+        }
+
+        @PublishDomainEvents
+        public List<TestOrder> placeBoth(long first, long second) {
+            return List.of(self.place(first), self.place(second));
+        }
+
+        @PublishDomainEvents
+        public void placeAndFail(long id) {
+            DomainEventRegistry.registerAggregateWithEvents(new TestOrder(id).place());
+            throw new IllegalStateException("Order rejected");
+        }
+
+        @PublishDomainEvents
+        public void placeDespiteFailure(long first, long second) {
+            self.place(first);
+            try {
+                self.placeAndFail(second);
+            } catch (IllegalStateException e) {
+                // The order registered before the failure stays tracked by this scope
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainEventRegistryTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void cleanUp() {
+        executor.shutdownNow();
+        DomainEventRegistry.forceCleanup();
+    }
+
+    @Test
+    void tracksAggregatesByIdentityInRegistrationOrder() {
+        TestOrder first = new SameOrder(1).place();
+        TestOrder equalToFirst = new SameOrder(1).place();
+        TestOrder second = new TestOrder(2).place();
+
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(first);
+        DomainEventRegistry.registerAggregateWithEvents(second);
+        DomainEventRegistry.registerAggregateWithEvents(equalToFirst);
+        DomainEventRegistry.registerAggregateWithEvents(first);
+        DomainEventRegistry.registerAggregateWithEvents(new TestOrder(3));
+
+        List<AggregateRoot<?>> tracked = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        assertEquals(3, tracked.size());
+        assertSame(first, tracked.get(0));
+        assertSame(second, tracked.get(1));
+        assertSame(equalToFirst, tracked.get(2));
+    }
+
+    @Test
+    void tracksAggregatesByIdentityBeyondTheScanThreshold() {
+        // More aggregates than the list is scanned for, all equal to each other
+        List<TestOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orders.add(new SameOrder(i).place());
+        }
+
+        DomainEventRegistry.startTracking();
+        orders.forEach(DomainEventRegistry::registerAggregateWithEvents);
+        orders.forEach(DomainEventRegistry::registerAggregateWithEvents);
+        List<AggregateRoot<?>> tracked = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+
+        assertEquals(orders.size(), tracked.size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertSame(orders.get(i), tracked.get(i));
+        }
+    }
+
+    @Test
+    void startsEachScopeEmptyWhateverTheSizeOfThePreviousOne() {
+        List<TestOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            orders.add(new TestOrder(i).place());
+        }
+
+        for (int size : new int[]{300, 20, 5}) {
+            DomainEventRegistry.startTracking();
+            orders.subList(0, size).forEach(DomainEventRegistry::registerAggregateWithEvents);
+            List<AggregateRoot<?>> tracked = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+
+            assertEquals(orders.subList(0, size), tracked);
+        }
+    }
+
+    @Test
+    void handsTheDrainedListOverToTheCaller() {
+        TestOrder first = new TestOrder(1).place();
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(first);
+        List<AggregateRoot<?>> drained = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(new TestOrder(2).place());
+        DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+
+        assertEquals(List.of(first), drained);
+    }
+
+    @Test
+    void reusesTheContextOfPlatformThreads() throws Exception {
+        List<Object> contexts = executor.submit(() -> {
+            List<Object> bound = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                DomainEventRegistry.startTracking();
+                DomainEventRegistry.registerAggregateWithEvents(new TestOrder(i).place());
+                DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+                bound.add(boundContext());
+            }
+            return bound;
+        }).get();
+
+        assertNotNull(contexts.get(0));
+        assertSame(contexts.get(0), contexts.get(1));
+    }
+
+    @Test
+    void keepsNoContextOnVirtualThreadsOnceTheScopeEnds() throws Exception {
+        Object[] context = new Object[1];
+        Thread thread = Thread.ofVirtual().start(() -> {
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.registerAggregateWithEvents(new TestOrder(1).place());
+            DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+            context[0] = boundContext();
+        });
+        thread.join();
+
+        assertNull(context[0]);
+    }
+
+    @Test
+    void neverReusesAContextSharedWithOtherThreads() throws Exception {
+        Object context = executor.submit(() -> {
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.wrap(() -> {
+            });
+            DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+            return boundContext();
+        }).get();
+
+        assertNull(context);
+    }
+
+    @Test
+    void nestedScopesLeaveTheirAggregatesToTheOutermostScope() {
+        TestOrder outer = new TestOrder(1).place();
+        TestOrder nested = new TestOrder(2).place();
+
+        assertTrue(DomainEventRegistry.startTracking());
+        DomainEventRegistry.registerAggregateWithEvents(outer);
+        assertFalse(DomainEventRegistry.startTracking());
+        DomainEventRegistry.registerAggregateWithEvents(nested);
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+
+        assertTrue(DomainEventRegistry.isTrackingActive());
+        assertEquals(List.of(outer, nested), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+        assertFalse(DomainEventRegistry.isTrackingActive());
+    }
+
+    @Test
+    void abortedNestedScopeLeavesTheOuterScopeTracking() {
+        TestOrder outer = new TestOrder(1).place();
+        TestOrder nested = new TestOrder(2).place();
+        TestOrder later = new TestOrder(3).place();
+
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(outer);
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(nested);
+        DomainEventRegistry.abortTracking();
+
+        assertTrue(DomainEventRegistry.isTrackingActive());
+        DomainEventRegistry.registerAggregateWithEvents(later);
+        assertEquals(List.of(outer, nested, later), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+    }
+
+    @Test
+    void abortedOutermostScopeDiscardsItsAggregates() {
+        TestOrder order = new TestOrder(1).place();
+
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.startTracking();
+        DomainEventRegistry.registerAggregateWithEvents(order);
+        DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        DomainEventRegistry.abortTracking();
+
+        assertFalse(DomainEventRegistry.isTrackingActive());
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+        // The next scope starts empty and outermost
+        assertTrue(DomainEventRegistry.startTracking());
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+    }
+
+    @Test
+    void tasksRegisterIntoTheScopeTheyJoined() throws Exception {
+        TestOrder order = new TestOrder(1).place();
+        DomainEventRegistry.startTracking();
+
+        executor.submit(DomainEventRegistry.wrap(() -> DomainEventRegistry.registerAggregateWithEvents(order))).get();
+
+        assertEquals(List.of(order), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+    }
+
+    @Test
+    void scopesOfTasksNeverEndTheJoinedScope() throws Exception {
+        TestOrder first = new TestOrder(1).place();
+        TestOrder second = new TestOrder(2).place();
+        DomainEventRegistry.startTracking();
+
+        // A @PublishDomainEvents method run by the task, completing then failing
+        List<AggregateRoot<?>> published = executor.submit(DomainEventRegistry.wrap(() -> {
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.registerAggregateWithEvents(first);
+            return DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        })).get();
+        executor.submit(DomainEventRegistry.wrap(() -> {
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.registerAggregateWithEvents(second);
+            DomainEventRegistry.abortTracking();
+        })).get();
+
+        assertEquals(List.of(), published);
+        assertTrue(DomainEventRegistry.isTrackingActive());
+        // Still the outermost scope: a nested one started here does not drain
+        assertFalse(DomainEventRegistry.startTracking());
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+        assertEquals(List.of(first, second), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+    }
+
+    @Test
+    void scopesOfTasksKeepWhatTheEndedScopeCanNoLongerTake() throws Exception {
+        TestOrder early = new TestOrder(1).place();
+        TestOrder late = new TestOrder(2).place();
+        CountDownLatch registered = new CountDownLatch(1);
+        CountDownLatch scopeEnded = new CountDownLatch(1);
+        DomainEventRegistry.startTracking();
+
+        Future<List<AggregateRoot<?>>> task = executor.submit(DomainEventRegistry.wrap(() -> {
+            DomainEventRegistry.startTracking();
+            DomainEventRegistry.registerAggregateWithEvents(early);
+            registered.countDown();
+            scopeEnded.await();
+            DomainEventRegistry.registerAggregateWithEvents(late);
+            return DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        }));
+        assertTrue(registered.await(5, TimeUnit.SECONDS));
+        List<AggregateRoot<?>> published = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+        scopeEnded.countDown();
+
+        assertEquals(List.of(early), published);
+        assertEquals(List.of(late), task.get());
+    }
+
+    @Test
+    void lateTasksWithoutScopeTrackNothing() throws Exception {
+        TestOrder order = new TestOrder(1).place();
+        DomainEventRegistry.startTracking();
+        Callable<Boolean> task = DomainEventRegistry.wrap(() -> {
+            DomainEventRegistry.registerAggregateWithEvents(order);
+            return DomainEventRegistry.isTrackingActive();
+        });
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+
+        assertFalse(executor.submit(task).get());
+
+        // Neither the next scope of the submitting thread nor the pool thread kept anything
+        DomainEventRegistry.startTracking();
+        assertEquals(List.of(), DomainEventRegistry.getTrackedAggregatesAndStopTracking());
+        assertFalse(executor.submit(DomainEventRegistry::isTrackingActive).get());
+    }
+
+    @Test
+    void leavesTasksUnwrappedOutsideScopes() {
+        Runnable task = () -> {
+        };
+
+        assertSame(task, DomainEventRegistry.wrap(task));
+    }
+
+    @Test
+    void propagatingExecutorServiceJoinsTheSubmittingScope() throws Exception {
+        ExecutorService propagating = DomainEventRegistry.propagating(Executors.newFixedThreadPool(2));
+        try {
+            List<TestOrder> orders = new ArrayList<>();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long id = 0; id < 4; id++) {
+                TestOrder order = new TestOrder(id).place();
+                orders.add(order);
+                tasks.add(() -> {
+                    DomainEventRegistry.registerAggregateWithEvents(order);
+                    return null;
+                });
+            }
+            TestOrder executed = new TestOrder(4).place();
+            TestOrder supplied = new TestOrder(5).place();
+            DomainEventRegistry.startTracking();
+
+            for (Future<Void> future : propagating.invokeAll(tasks)) {
+                future.get();
+            }
+            CompletableFuture.runAsync(() -> DomainEventRegistry.registerAggregateWithEvents(executed), propagating).get();
+            CompletableFuture.supplyAsync(DomainEventRegistry.wrapSupplier(() -> {
+                DomainEventRegistry.registerAggregateWithEvents(supplied);
+                return supplied;
+            })).get();
+
+            List<AggregateRoot<?>> tracked = DomainEventRegistry.getTrackedAggregatesAndStopTracking();
+            assertEquals(6, tracked.size());
+            assertTrue(tracked.containsAll(orders));
+            assertTrue(tracked.contains(executed));
+            assertTrue(tracked.contains(supplied));
+
+            // Submitted outside any scope, tasks track nothing
+            assertFalse(propagating.submit(DomainEventRegistry::isTrackingActive).get());
+        } finally {
+            propagating.shutdown();
+        }
+        assertTrue(propagating.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(propagating.isTerminated());
+    }
+
+    // The context bound to the current thread, not exposed by the registry
+    private static Object boundContext() {
+        try {
+            Field field = DomainEventRegistry.class.getDeclaredField("CONTEXT");
+            field.setAccessible(true);
+            return ((ThreadLocal<?>) field.get(null)).get();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Equal to every other instance, only identity tells them apart.
+     */
+    static class SameOrder extends TestOrder {
+
+        SameOrder(long id) {
+            super(id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SameOrder;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
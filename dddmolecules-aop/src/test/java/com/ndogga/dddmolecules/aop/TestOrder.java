@@ -0,0 +1,28 @@
+package com.ndogga.dddmolecules.aop;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+
+/**
+ * Aggregate used by the aspect and registry tests.
+ */
+public class TestOrder extends AggregateRoot<Long> {
+
+    private final long id;
+
+    public TestOrder(long id) {
+        this.id = id;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public TestOrder place() {
+        registerEvent(new OrderPlaced(id));
+        return this;
+    }
+
+    public record OrderPlaced(long orderId) {
+    }
+}
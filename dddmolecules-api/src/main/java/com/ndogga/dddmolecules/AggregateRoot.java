@@ -1,55 +1,161 @@
 package com.ndogga.dddmolecules;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
 
 /**
  * Base class for aggregate roots that need to publish domain events.
  * This provides the mechanism for collecting events without depending on infrastructure.
+ * <p>
+ * Events are kept inline: the first two events live in plain fields and an overflow array is
+ * only allocated when a third event is registered. Aggregates that never raise an event,
+ * e.g. those loaded for queries, carry no buffer at all.
+ * <p>
+ * A {@link DomainEventRegistrationListener} may be installed to be told about every registered event,
+ * so that aggregates enlist themselves for publication instead of being discovered by infrastructure.
  * @param <ID> the aggregate's unique identifier type
  */
 @org.jmolecules.ddd.annotation.AggregateRoot
 public abstract class AggregateRoot<ID> {
-    
-    private final List<Object> domainEvents = new ArrayList<>();
-    
+
+    private static final int INLINE_EVENTS = 2;
+
+    private static volatile DomainEventRegistrationListener registrationListener;
+
+    private Object firstEvent;
+    private Object secondEvent;
+    private Object[] overflowEvents;
+    private int domainEventCount;
+
     /**
      * Register a domain event to be published after the current transaction.
      * Events are collected and can be retrieved by infrastructure services.
      * @param event the domain event to register
      */
     protected void registerEvent(Object event) {
-        if (event != null) {
-            domainEvents.add(event);
+        if (event == null) {
+            return;
         }
+
+        switch (domainEventCount) {
+            case 0 -> firstEvent = event;
+            case 1 -> secondEvent = event;
+            default -> {
+                int index = domainEventCount - INLINE_EVENTS;
+                if (overflowEvents == null) {
+                    overflowEvents = new Object[INLINE_EVENTS];
+                } else if (index == overflowEvents.length) {
+                    overflowEvents = Arrays.copyOf(overflowEvents, index + (index >> 1) + 1);
+                }
+                overflowEvents[index] = event;
+            }
+        }
+        domainEventCount++;
+
+        DomainEventRegistrationListener listener = registrationListener;
+        if (listener != null) {
+            listener.eventRegistered(this);
+        }
+    }
+
+    /**
+     * Install the listener notified each time any aggregate registers an event, replacing the previous one.
+     * @param listener the listener, null to remove it
+     */
+    public static void setRegistrationListener(DomainEventRegistrationListener listener) {
+        registrationListener = listener;
     }
-    
+
+    /**
+     * Get the installed registration listener.
+     * @return the listener, null if none is installed
+     */
+    public static DomainEventRegistrationListener getRegistrationListener() {
+        return registrationListener;
+    }
+
     /**
      * Get all registered domain events.
      * This method should be called by infrastructure after persisting the aggregate.
-     * @return List of registered domain events, never null
+     * @return Read-only view of the registered domain events, never null
      */
     @DomainEvents
     public List<Object> getDomainEvents() {
-        return Collections.unmodifiableList(domainEvents);
+        return domainEventCount == 0 ? List.of() : new DomainEventList();
+    }
+
+    /**
+     * Get the number of registered domain events without creating a view over them.
+     * @return the number of pending domain events
+     */
+    public int getDomainEventCount() {
+        return domainEventCount;
+    }
+
+    /**
+     * Pass every registered domain event, in registration order, to the given action
+     * without creating a view over them.
+     * @param action the action to perform on each event
+     */
+    public void forEachDomainEvent(Consumer<Object> action) {
+        for (int i = 0; i < domainEventCount; i++) {
+            action.accept(domainEventAt(i));
+        }
     }
-    
+
     /**
      * Clear all domain events.
      * This should be called after events have been successfully published.
      */
     @AfterDomainEventPublication
     public void clearDomainEvents() {
-        domainEvents.clear();
+        if (domainEventCount > INLINE_EVENTS) {
+            // Keep the overflow array, an aggregate that raised many events is likely to do so again
+            Arrays.fill(overflowEvents, 0, domainEventCount - INLINE_EVENTS, null);
+        }
+        firstEvent = null;
+        secondEvent = null;
+        domainEventCount = 0;
     }
-    
+
+    /**
+     * Hand all registered domain events over to the given sink and reset the buffer in one step.
+     * The buffer is detached before the first event is passed on, so events registered while the
+     * sink runs, e.g. by a synchronous listener, are kept for the next publication.
+     * @param sink receives each event, in registration order
+     */
+    public void drainDomainEvents(Consumer<Object> sink) {
+        int count = domainEventCount;
+        if (count == 0) {
+            return;
+        }
+
+        Object first = firstEvent;
+        Object second = secondEvent;
+        Object[] overflow = overflowEvents;
+        firstEvent = null;
+        secondEvent = null;
+        overflowEvents = null;
+        domainEventCount = 0;
+
+        sink.accept(first);
+        if (count > 1) {
+            sink.accept(second);
+        }
+        for (int i = 0; i < count - INLINE_EVENTS; i++) {
+            sink.accept(overflow[i]);
+        }
+    }
+
     /**
      * Check if there are any pending domain events.
      * @return true if there are pending domain events, false otherwise
      */
     public boolean hasDomainEvents() {
-        return !domainEvents.isEmpty();
+        return domainEventCount != 0;
     }
 
     /**
@@ -57,4 +163,38 @@ public abstract class AggregateRoot<ID> {
      * @return the aggregate's unique identifier, never null
      */
     public abstract ID getId();
-}
\ No newline at end of file
+
+    private Object domainEventAt(int index) {
+        return switch (index) {
+            case 0 -> firstEvent;
+            case 1 -> secondEvent;
+            default -> overflowEvents[index - INLINE_EVENTS];
+        };
+    }
+
+    /**
+     * Read-only live view over the inline event storage.
+     */
+    private final class DomainEventList extends AbstractList<Object> implements RandomAccess {
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= domainEventCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + domainEventCount);
+            }
+            return domainEventAt(index);
+        }
+
+        @Override
+        public int size() {
+            return domainEventCount;
+        }
+
+        @Override
+        public void forEach(Consumer<? super Object> action) {
+            for (int i = 0; i < domainEventCount; i++) {
+                action.accept(domainEventAt(i));
+            }
+        }
+    }
+}
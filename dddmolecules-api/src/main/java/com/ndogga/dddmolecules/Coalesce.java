@@ -0,0 +1,54 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to mark a domain event type whose events may be coalesced before publication.
+ * 
+ * Among the events drained from one aggregate in a single collectAndPublish call, events of the
+ * annotated type with equal keys are reduced to one. By default only the last one is kept, at its
+ * own position, as it supersedes the previous ones; with {@link Mode#FIRST} only the first one is
+ * kept and later ones are dropped as duplicates. Events of other types are never affected.
+ * 
+ * Coalescing is opt-in on the collector, see {@link ReflectionEventCollector#setCoalescing(boolean)}.
+ * 
+ * Example:
+ * <pre>
+ * &#64;Coalesce(key = "orderId")
+ * public record OrderStatusChangedEvent(String orderId, OrderStatus status) {
+ * }
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+
+    /**
+     * Names of the record components, or public no-argument methods, forming the key.
+     * When empty, every event of the type shares the same key.
+     * An unknown name is logged and the events of the type are then published without coalescing.
+     */
+    String[] key() default {};
+
+    /**
+     * Which event of a key is kept.
+     */
+    Mode mode() default Mode.LAST;
+
+    enum Mode {
+
+        /**
+         * Keep the last event, earlier ones are superseded.
+         */
+        LAST,
+
+        /**
+         * Keep the first event, later ones are duplicates.
+         */
+        FIRST
+
+    }
+}
@@ -0,0 +1,48 @@
+package com.ndogga.dddmolecules;
+
+import java.util.function.Consumer;
+
+/**
+ * Typed access to the `@DomainEvents` and `@AfterDomainEventPublication` methods of an aggregate class.
+ * <p>
+ * Implementations are generated at compile time by the `dddmolecules-processor` annotation processor
+ * and registered in `META-INF/services/com.ndogga.dddmolecules.DomainEventAccessor`. Classes without a
+ * generated accessor fall back to a reflective, {@link java.lang.invoke.MethodHandle} based one.
+ *
+ * @param <T> the aggregate type
+ */
+public interface DomainEventAccessor<T> {
+
+    /**
+     * Get the exact aggregate class handled by this accessor.
+     * @return the aggregate class, never null
+     */
+    Class<T> aggregateType();
+
+    /**
+     * Invoke every `@DomainEvents` method of the aggregate and pass the returned events to the sink.
+     * Collections are flattened, null results are ignored.
+     * @param aggregate the aggregate to read the events from
+     * @param sink receives each collected event
+     */
+    void collectDomainEvents(T aggregate, Consumer<Object> sink);
+
+    /**
+     * Invoke every `@AfterDomainEventPublication` method of the aggregate.
+     * @param aggregate the aggregate whose events have been published
+     */
+    void afterDomainEventPublication(T aggregate);
+
+    /**
+     * Hand the aggregate's events over to the sink and reset them in a single step.
+     * By default this collects the events then calls the `@AfterDomainEventPublication` methods;
+     * accessors of aggregates relying on the {@link AggregateRoot} buffer use
+     * {@link AggregateRoot#drainDomainEvents(Consumer)} instead.
+     * @param aggregate the aggregate to drain
+     * @param sink receives each drained event
+     */
+    default void drainDomainEvents(T aggregate, Consumer<Object> sink) {
+        collectDomainEvents(aggregate, sink);
+        afterDomainEventPublication(aggregate);
+    }
+}
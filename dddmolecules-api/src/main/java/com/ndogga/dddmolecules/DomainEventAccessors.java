@@ -0,0 +1,67 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+
+/**
+ * Per-class cache of {@link DomainEventAccessor}s.
+ * <p>
+ * The accessor of a class is resolved once, on first use, and kept in a {@link ClassValue}.
+ * Accessors generated by the `dddmolecules-processor` annotation processor are preferred; they are
+ * read from the `META-INF/services` index of the aggregate's class loader. Classes without a generated
+ * accessor get a {@link MethodHandleDomainEventAccessor}.
+ */
+final class DomainEventAccessors {
+
+    private static final ClassValue<DomainEventAccessor<Object>> CACHE = new ClassValue<>() {
+        @Override
+        protected DomainEventAccessor<Object> computeValue(Class<?> type) {
+            DomainEventAccessor<Object> generated = findGenerated(type);
+            return generated != null ? generated : new MethodHandleDomainEventAccessor(type);
+        }
+    };
+
+    // Soft values: accessors reference their class loader, which would otherwise keep the weak key alive
+    private static final Map<ClassLoader, SoftReference<Map<Class<?>, DomainEventAccessor<?>>>> GENERATED_INDEXES =
+            new WeakHashMap<>();
+
+    private DomainEventAccessors() {
+    }
+
+    /**
+     * Get the cached accessor for the given class, resolving it on first access.
+     * @param type the aggregate class
+     * @return the accessor, never null
+     */
+    static DomainEventAccessor<Object> forType(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DomainEventAccessor<Object> findGenerated(Class<?> type) {
+        return (DomainEventAccessor<Object>) generatedIndex(type.getClassLoader()).get(type);
+    }
+
+    private static synchronized Map<Class<?>, DomainEventAccessor<?>> generatedIndex(ClassLoader classLoader) {
+        SoftReference<Map<Class<?>, DomainEventAccessor<?>>> reference = GENERATED_INDEXES.get(classLoader);
+        Map<Class<?>, DomainEventAccessor<?>> index = reference != null ? reference.get() : null;
+
+        if (index == null) {
+            index = new HashMap<>();
+            try {
+                for (DomainEventAccessor<?> accessor : ServiceLoader.load(DomainEventAccessor.class, classLoader)) {
+                    index.put(accessor.aggregateType(), accessor);
+                }
+            } catch (ServiceConfigurationError e) {
+                throw new RuntimeException("Failed to load generated domain event accessors", e);
+            }
+            GENERATED_INDEXES.put(classLoader, new SoftReference<>(index));
+        }
+
+        return index;
+    }
+}
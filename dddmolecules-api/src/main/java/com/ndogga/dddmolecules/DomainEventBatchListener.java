@@ -0,0 +1,32 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to mark a method that receives domain events in batches rather than one by one.
+ * 
+ * The annotated method must declare a single {@code List<E>} parameter. It is called once per
+ * collectAndPublish call, or once per transaction when events are published within one, with every
+ * published event assignable to E, in publication order, after the per-event listeners.
+ * It is not called when there is no such event.
+ * 
+ * Events handed over to a ring buffer, or spilled to disk while asynchronous publishing is saturated,
+ * are the exception: their per-event listeners run on other threads and may not have returned yet.
+ * 
+ * This is typically used by projections to replace N round trips with a single bulk write.
+ * 
+ * Example:
+ * <pre>
+ * &#64;DomainEventBatchListener
+ * public void on(List&lt;OrderPlacedEvent&gt; events) {
+ *     orderViewRepository.insertAll(events.stream().map(OrderView::from).toList());
+ * }
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DomainEventBatchListener {
+}
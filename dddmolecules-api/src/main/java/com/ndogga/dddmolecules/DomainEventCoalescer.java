@@ -0,0 +1,141 @@
+package com.ndogga.dddmolecules;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drops the superseded and duplicate events of {@link Coalesce} annotated types from the events of one aggregate.
+ * <p>
+ * The coalescing key of each event type is resolved once, from its annotation, and kept in a {@link ClassValue}.
+ * Lists without any annotated event are left untouched without allocating.
+ * <p>
+ * Coalescing never loses events: a type with an invalid key is logged once and never coalesced,
+ * and a list whose keys cannot be read is logged and left untouched.
+ */
+final class DomainEventCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainEventCoalescer.class);
+
+    private static final CoalescingKey NOT_COALESCED = new CoalescingKey(null, null, new MethodHandle[0]);
+
+    private static final ClassValue<CoalescingKey> KEYS = new ClassValue<>() {
+        @Override
+        protected CoalescingKey computeValue(Class<?> type) {
+            Coalesce coalesce = type.getAnnotation(Coalesce.class);
+            if (coalesce == null) {
+                return NOT_COALESCED;
+            }
+            try {
+                return CoalescingKey.of(type, coalesce);
+            } catch (IllegalStateException e) {
+                log.error("Events of {} are published without coalescing", type.getName(), e);
+                return NOT_COALESCED;
+            }
+        }
+    };
+
+    private DomainEventCoalescer() {
+    }
+
+    /**
+     * Remove the superseded and duplicate events from the list, keeping the order of the remaining ones.
+     * @param events the events drained from a single aggregate, modified in place
+     */
+    static void coalesce(List<Object> events) {
+        int size = events.size();
+        if (size < 2) {
+            return;
+        }
+
+        CoalescingKey[] keys = null;
+        for (int i = 0; i < size; i++) {
+            CoalescingKey key = KEYS.get(events.get(i).getClass());
+            if (key != NOT_COALESCED) {
+                if (keys == null) {
+                    keys = new CoalescingKey[size];
+                }
+                keys[i] = key;
+            }
+        }
+        if (keys == null) {
+            return;
+        }
+
+        boolean[] dropped = new boolean[size];
+        Set<List<Object>> seen = new HashSet<>();
+
+        // The list is only modified once every key has been read, so a failing key leaves it whole
+        try {
+            // Duplicates: the first event of a key wins
+            for (int i = 0; i < size; i++) {
+                if (keys[i] != null && keys[i].mode() == Coalesce.Mode.FIRST) {
+                    dropped[i] = !seen.add(keys[i].valueOf(events.get(i)));
+                }
+            }
+
+            // Superseded events: the last event of a key wins
+            for (int i = size - 1; i >= 0; i--) {
+                if (keys[i] != null && keys[i].mode() == Coalesce.Mode.LAST) {
+                    dropped[i] = !seen.add(keys[i].valueOf(events.get(i)));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Events are published without coalescing", e);
+            return;
+        }
+
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dropped[i]) {
+                events.set(kept++, events.get(i));
+            }
+        }
+        events.subList(kept, size).clear();
+    }
+
+    /**
+     * The coalescing key of an event type: the type itself followed by the values of the key members.
+     */
+    private record CoalescingKey(Class<?> type, Coalesce.Mode mode, MethodHandle[] members) {
+
+        static CoalescingKey of(Class<?> type, Coalesce coalesce) {
+            MethodHandle[] members = new MethodHandle[coalesce.key().length];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < members.length; i++) {
+                try {
+                    Method member = type.getMethod(coalesce.key()[i]);
+                    member.setAccessible(true);
+                    members[i] = lookup.unreflect(member).asType(MethodType.methodType(Object.class, Object.class));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    throw new IllegalStateException("Invalid @Coalesce key " + coalesce.key()[i] + " on " + type.getName(), e);
+                }
+            }
+            return new CoalescingKey(type, coalesce.mode(), members);
+        }
+
+        List<Object> valueOf(Object event) {
+            Object[] values = new Object[members.length + 1];
+            values[0] = type;
+            for (int i = 0; i < members.length; i++) {
+                try {
+                    values[i + 1] = members[i].invokeExact(event);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException("Failed to read @Coalesce key of " + type.getName(), e);
+                }
+            }
+            // Arrays.asList keeps null values, List.of would reject them
+            return Arrays.asList(values);
+        }
+    }
+}
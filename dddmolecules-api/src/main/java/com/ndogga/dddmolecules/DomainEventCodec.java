@@ -0,0 +1,902 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary codec for domain events declared as records.
+ * <p>
+ * The schema of a record type, i.e. its components, their accessors and its canonical constructor, is built once
+ * per type and cached. Events are then written straight into a {@link ByteBuffer}, component by component,
+ * without building intermediate strings or trees:
+ * - integral values as zigzag varints, floating point values in their IEEE 754 form
+ * - strings as their UTF-8 length followed by their UTF-8 bytes, encoded on the fly
+ * - reference values prefixed by a presence marker, so they may be null
+ * - nested records inline, lists and sets as their size followed by their elements
+ * <p>
+ * Each event starts with its type name and a fingerprint of its components, so {@link #decode(ByteBuffer)} needs
+ * no type hint and rejects events encoded from a different version of their record. The fingerprint covers the
+ * constants of enums, written by ordinal, and the components of nested records. Multibyte values use the byte
+ * order of the buffer, events must be decoded with the order they were encoded with.
+ * <p>
+ * Supported component types are primitives and their wrappers, String, UUID, BigInteger, BigDecimal, Instant,
+ * LocalDate, enums, byte arrays, records of supported types, and lists and sets of them.
+ */
+public class DomainEventCodec implements DomainEventSerializer {
+
+    private final ClassLoader classLoader;
+
+    private final ClassValue<RecordSchema> schemas = new ClassValue<>() {
+        @Override
+        protected RecordSchema computeValue(Class<?> type) {
+            return new RecordSchema(type);
+        }
+    };
+
+    private final Map<String, RecordSchema> schemasByName = new ConcurrentHashMap<>();
+
+    private volatile RecordSchema lastDecodedSchema;
+
+    public DomainEventCodec() {
+        this(DomainEventCodec.class.getClassLoader());
+    }
+
+    /**
+     * @param classLoader the class loader resolving the event types of decoded events
+     */
+    public DomainEventCodec(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Get the exact number of bytes {@link #encode(Object, ByteBuffer)} writes for the given event.
+     * @param event the domain event, a record
+     * @return the encoded size in bytes
+     */
+    public int sizeOf(Object event) {
+        RecordSchema schema = schemaOf(event.getClass());
+        return schema.headerSize() + schema.sizeOf(event);
+    }
+
+    /**
+     * Encode an event at the current position of the buffer, advancing it.
+     * @param event the domain event, a record
+     * @param target the buffer, with at least {@link #sizeOf(Object)} bytes remaining
+     */
+    public void encode(Object event, ByteBuffer target) {
+        RecordSchema schema = schemaOf(event.getClass());
+        writeVarLong(target, schema.name.length);
+        target.put(schema.name);
+        target.putInt(schema.fingerprint);
+        schema.write(event, target);
+    }
+
+    /**
+     * Decode the event at the current position of the buffer, advancing it past the event.
+     * @param source the buffer
+     * @return the domain event
+     */
+    public Object decode(ByteBuffer source) {
+        int nameLength = (int) readVarLong(source);
+        RecordSchema schema = resolveSchema(source, nameLength);
+        source.position(source.position() + nameLength);
+
+        if (source.getInt() != schema.fingerprint) {
+            throw new IllegalStateException("Domain event " + schema.type.getName() + " was encoded with different record components");
+        }
+        return schema.read(source);
+    }
+
+    @Override
+    public byte[] serialize(Object event) {
+        byte[] bytes = new byte[sizeOf(event)];
+        encode(event, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    private RecordSchema schemaOf(Class<?> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Domain event codec only supports records, got " + type.getName());
+        }
+        return schemas.get(type);
+    }
+
+    private RecordSchema resolveSchema(ByteBuffer source, int nameLength) {
+        // Events of one type usually come in runs, check the last decoded type before building the name
+        RecordSchema last = lastDecodedSchema;
+        if (last != null && nameMatches(source, last.name, nameLength)) {
+            return last;
+        }
+
+        byte[] name = new byte[nameLength];
+        source.get(source.position(), name);
+        RecordSchema schema = schemasByName.computeIfAbsent(new String(name, StandardCharsets.UTF_8), this::loadSchema);
+        lastDecodedSchema = schema;
+        return schema;
+    }
+
+    private RecordSchema loadSchema(String typeName) {
+        try {
+            return schemaOf(Class.forName(typeName, false, classLoader));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Failed to load domain event type " + typeName, e);
+        }
+    }
+
+    private static boolean nameMatches(ByteBuffer source, byte[] name, int nameLength) {
+        if (name.length != nameLength) {
+            return false;
+        }
+        int position = source.position();
+        for (int i = 0; i < nameLength; i++) {
+            if (source.get(position + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ValueCodec codecFor(Type type, Class<?> owner) {
+        Class<?> rawType = type instanceof ParameterizedType parameterized ? (Class<?>) parameterized.getRawType()
+                : type instanceof Class<?> clazz ? clazz : null;
+
+        if (rawType == null) {
+            throw new IllegalArgumentException("Unsupported component type " + type.getTypeName() + " in " + owner.getName());
+        }
+        if (rawType == Boolean.class || rawType == boolean.class) {
+            return ScalarCodec.BOOLEAN;
+        }
+        if (rawType == Byte.class || rawType == byte.class) {
+            return ScalarCodec.BYTE;
+        }
+        if (rawType == Short.class || rawType == short.class) {
+            return ScalarCodec.SHORT;
+        }
+        if (rawType == Character.class || rawType == char.class) {
+            return ScalarCodec.CHAR;
+        }
+        if (rawType == Integer.class || rawType == int.class) {
+            return ScalarCodec.INT;
+        }
+        if (rawType == Long.class || rawType == long.class) {
+            return ScalarCodec.LONG;
+        }
+        if (rawType == Float.class || rawType == float.class) {
+            return ScalarCodec.FLOAT;
+        }
+        if (rawType == Double.class || rawType == double.class) {
+            return ScalarCodec.DOUBLE;
+        }
+        if (rawType == String.class) {
+            return ScalarCodec.STRING;
+        }
+        if (rawType == UUID.class) {
+            return ScalarCodec.UUID;
+        }
+        if (rawType == BigInteger.class) {
+            return ScalarCodec.BIG_INTEGER;
+        }
+        if (rawType == BigDecimal.class) {
+            return ScalarCodec.BIG_DECIMAL;
+        }
+        if (rawType == Instant.class) {
+            return ScalarCodec.INSTANT;
+        }
+        if (rawType == LocalDate.class) {
+            return ScalarCodec.LOCAL_DATE;
+        }
+        if (rawType == byte[].class) {
+            return ScalarCodec.BYTES;
+        }
+        if (rawType.isEnum()) {
+            return new EnumCodec(rawType.getEnumConstants());
+        }
+        if (rawType.isRecord()) {
+            // Resolved on first use, records may refer to themselves
+            return new NestedRecordCodec(rawType);
+        }
+        if ((rawType == List.class || rawType == Set.class) && type instanceof ParameterizedType parameterized) {
+            ValueCodec elementCodec = new NullableCodec(codecFor(parameterized.getActualTypeArguments()[0], owner));
+            return new CollectionCodec(elementCodec, rawType == Set.class);
+        }
+        throw new IllegalArgumentException("Unsupported component type " + type.getTypeName() + " in " + owner.getName());
+    }
+
+    /**
+     * Describe the components of a record type, as hashed into its fingerprint: the name and type of each component,
+     * followed by the constant names of enums and the description of nested records, once per record type.
+     * @param type the record type
+     * @return one entry per component
+     */
+    static List<String> describe(Class<?> type) {
+        Set<Class<?>> described = new HashSet<>();
+        described.add(type);
+        return describe(type, described);
+    }
+
+    private static List<String> describe(Class<?> type, Set<Class<?>> described) {
+        List<String> description = new ArrayList<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            StringBuilder entry = new StringBuilder(component.getName())
+                    .append(':')
+                    .append(component.getGenericType().getTypeName());
+            describeNested(component.getGenericType(), entry, described);
+            description.add(entry.toString());
+        }
+        return description;
+    }
+
+    private static void describeNested(Type type, StringBuilder entry, Set<Class<?>> described) {
+        if (type instanceof ParameterizedType parameterized) {
+            for (Type argument : parameterized.getActualTypeArguments()) {
+                describeNested(argument, entry, described);
+            }
+        } else if (type instanceof Class<?> clazz) {
+            if (clazz.isEnum()) {
+                entry.append(Arrays.stream(clazz.getEnumConstants()).map(constant -> ((Enum<?>) constant).name()).toList());
+            } else if (clazz.isRecord() && described.add(clazz)) {
+                entry.append(describe(clazz, described));
+            }
+        }
+    }
+
+    /**
+     * Components, accessors and canonical constructor of a record type.
+     */
+    private final class RecordSchema {
+
+        private final Class<?> type;
+        private final byte[] name;
+        private final int fingerprint;
+        private final Component[] components;
+        private final MethodHandle constructor;
+
+        RecordSchema(Class<?> type) {
+            RecordComponent[] recordComponents = type.getRecordComponents();
+            this.type = type;
+            this.name = type.getName().getBytes(StandardCharsets.UTF_8);
+            this.fingerprint = describe(type).hashCode();
+            this.components = new Component[recordComponents.length];
+
+            Class<?>[] parameterTypes = new Class<?>[recordComponents.length];
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                for (int i = 0; i < recordComponents.length; i++) {
+                    RecordComponent component = recordComponents[i];
+                    Method accessor = component.getAccessor();
+                    accessor.setAccessible(true);
+                    components[i] = new Component(lookup.unreflect(accessor), codecFor(component.getGenericType(), type));
+                    parameterTypes[i] = component.getType();
+                }
+
+                Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+                canonical.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(canonical)
+                        .asType(MethodType.genericMethodType(parameterTypes.length))
+                        .asSpreader(Object[].class, parameterTypes.length);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalArgumentException("Failed to build domain event codec schema for " + type.getName(), e);
+            }
+        }
+
+        int headerSize() {
+            return varLongSize(name.length) + name.length + Integer.BYTES;
+        }
+
+        int sizeOf(Object record) {
+            int size = 0;
+            for (Component component : components) {
+                size += component.sizeOf(record);
+            }
+            return size;
+        }
+
+        void write(Object record, ByteBuffer target) {
+            for (Component component : components) {
+                component.write(record, target);
+            }
+        }
+
+        Object read(ByteBuffer source) {
+            Object[] values = new Object[components.length];
+            for (int i = 0; i < components.length; i++) {
+                values[i] = components[i].read(source);
+            }
+
+            try {
+                return constructor.invoke(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to create domain event " + type.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * A record component. Primitive values are read through typed accessors and written without boxing,
+     * reference values are prefixed by a presence marker.
+     */
+    private static final class Component {
+
+        private final Class<?> type;
+        private final MethodHandle accessor;
+        private final ValueCodec codec;
+
+        Component(MethodHandle accessor, ValueCodec codec) {
+            this.type = accessor.type().returnType();
+            this.accessor = type.isPrimitive()
+                    ? accessor.asType(MethodType.methodType(type, Object.class))
+                    : accessor.asType(MethodType.methodType(Object.class, Object.class));
+            this.codec = type.isPrimitive() ? codec : new NullableCodec(codec);
+        }
+
+        int sizeOf(Object record) {
+            try {
+                if (type == int.class) {
+                    return varLongSize(zigzag((int) accessor.invokeExact(record)));
+                } else if (type == long.class) {
+                    return varLongSize(zigzag((long) accessor.invokeExact(record)));
+                } else if (type == double.class) {
+                    return Double.BYTES;
+                } else if (type == float.class) {
+                    return Float.BYTES;
+                } else if (type == boolean.class || type == byte.class) {
+                    return Byte.BYTES;
+                } else if (type == short.class || type == char.class) {
+                    return Short.BYTES;
+                }
+                return codec.sizeOf((Object) accessor.invokeExact(record));
+            } catch (Throwable e) {
+                throw accessorFailure(e);
+            }
+        }
+
+        void write(Object record, ByteBuffer target) {
+            try {
+                if (type == int.class) {
+                    writeVarLong(target, zigzag((int) accessor.invokeExact(record)));
+                } else if (type == long.class) {
+                    writeVarLong(target, zigzag((long) accessor.invokeExact(record)));
+                } else if (type == double.class) {
+                    target.putDouble((double) accessor.invokeExact(record));
+                } else if (type == float.class) {
+                    target.putFloat((float) accessor.invokeExact(record));
+                } else if (type == boolean.class) {
+                    target.put((byte) ((boolean) accessor.invokeExact(record) ? 1 : 0));
+                } else if (type == byte.class) {
+                    target.put((byte) accessor.invokeExact(record));
+                } else if (type == short.class) {
+                    target.putShort((short) accessor.invokeExact(record));
+                } else if (type == char.class) {
+                    target.putChar((char) accessor.invokeExact(record));
+                } else {
+                    codec.write((Object) accessor.invokeExact(record), target);
+                }
+            } catch (Throwable e) {
+                throw accessorFailure(e);
+            }
+        }
+
+        Object read(ByteBuffer source) {
+            return codec.read(source);
+        }
+
+        private static RuntimeException accessorFailure(Throwable e) {
+            if (e instanceof RuntimeException runtimeException) {
+                return runtimeException;
+            }
+            if (e instanceof Error error) {
+                throw error;
+            }
+            return new RuntimeException("Failed to read domain event component", e);
+        }
+    }
+
+    /**
+     * Encoding of a single non-null value.
+     */
+    private interface ValueCodec {
+
+        int sizeOf(Object value);
+
+        void write(Object value, ByteBuffer target);
+
+        Object read(ByteBuffer source);
+
+    }
+
+    private enum ScalarCodec implements ValueCodec {
+
+        BOOLEAN {
+            @Override
+            public int sizeOf(Object value) {
+                return Byte.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.put((byte) ((Boolean) value ? 1 : 0));
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.get() != 0;
+            }
+        },
+
+        BYTE {
+            @Override
+            public int sizeOf(Object value) {
+                return Byte.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.put((Byte) value);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.get();
+            }
+        },
+
+        SHORT {
+            @Override
+            public int sizeOf(Object value) {
+                return Short.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.putShort((Short) value);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.getShort();
+            }
+        },
+
+        CHAR {
+            @Override
+            public int sizeOf(Object value) {
+                return Character.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.putChar((Character) value);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.getChar();
+            }
+        },
+
+        INT {
+            @Override
+            public int sizeOf(Object value) {
+                return varLongSize(zigzag((Integer) value));
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                writeVarLong(target, zigzag((Integer) value));
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return (int) unzigzag(readVarLong(source));
+            }
+        },
+
+        LONG {
+            @Override
+            public int sizeOf(Object value) {
+                return varLongSize(zigzag((Long) value));
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                writeVarLong(target, zigzag((Long) value));
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return unzigzag(readVarLong(source));
+            }
+        },
+
+        FLOAT {
+            @Override
+            public int sizeOf(Object value) {
+                return Float.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.putFloat((Float) value);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.getFloat();
+            }
+        },
+
+        DOUBLE {
+            @Override
+            public int sizeOf(Object value) {
+                return Double.BYTES;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                target.putDouble((Double) value);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return source.getDouble();
+            }
+        },
+
+        STRING {
+            @Override
+            public int sizeOf(Object value) {
+                int length = utf8Length((String) value);
+                return varLongSize(length) + length;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                String string = (String) value;
+                writeVarLong(target, utf8Length(string));
+                writeUtf8(string, target);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                int length = (int) readVarLong(source);
+                String string;
+                if (source.hasArray()) {
+                    string = new String(source.array(), source.arrayOffset() + source.position(), length, StandardCharsets.UTF_8);
+                } else {
+                    byte[] bytes = new byte[length];
+                    source.get(source.position(), bytes);
+                    string = new String(bytes, StandardCharsets.UTF_8);
+                }
+                source.position(source.position() + length);
+                return string;
+            }
+        },
+
+        UUID {
+            @Override
+            public int sizeOf(Object value) {
+                return Long.BYTES * 2;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                java.util.UUID uuid = (java.util.UUID) value;
+                target.putLong(uuid.getMostSignificantBits());
+                target.putLong(uuid.getLeastSignificantBits());
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return new java.util.UUID(source.getLong(), source.getLong());
+            }
+        },
+
+        BIG_INTEGER {
+            @Override
+            public int sizeOf(Object value) {
+                return BYTES.sizeOf(((BigInteger) value).toByteArray());
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                BYTES.write(((BigInteger) value).toByteArray(), target);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return new BigInteger((byte[]) BYTES.read(source));
+            }
+        },
+
+        BIG_DECIMAL {
+            @Override
+            public int sizeOf(Object value) {
+                BigDecimal decimal = (BigDecimal) value;
+                return varLongSize(zigzag(decimal.scale())) + BIG_INTEGER.sizeOf(decimal.unscaledValue());
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                BigDecimal decimal = (BigDecimal) value;
+                writeVarLong(target, zigzag(decimal.scale()));
+                BIG_INTEGER.write(decimal.unscaledValue(), target);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                int scale = (int) unzigzag(readVarLong(source));
+                return new BigDecimal((BigInteger) BIG_INTEGER.read(source), scale);
+            }
+        },
+
+        INSTANT {
+            @Override
+            public int sizeOf(Object value) {
+                Instant instant = (Instant) value;
+                return varLongSize(zigzag(instant.getEpochSecond())) + varLongSize(instant.getNano());
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                Instant instant = (Instant) value;
+                writeVarLong(target, zigzag(instant.getEpochSecond()));
+                writeVarLong(target, instant.getNano());
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                long seconds = unzigzag(readVarLong(source));
+                return Instant.ofEpochSecond(seconds, readVarLong(source));
+            }
+        },
+
+        LOCAL_DATE {
+            @Override
+            public int sizeOf(Object value) {
+                return varLongSize(zigzag(((LocalDate) value).toEpochDay()));
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                writeVarLong(target, zigzag(((LocalDate) value).toEpochDay()));
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                return LocalDate.ofEpochDay(unzigzag(readVarLong(source)));
+            }
+        },
+
+        BYTES {
+            @Override
+            public int sizeOf(Object value) {
+                int length = ((byte[]) value).length;
+                return varLongSize(length) + length;
+            }
+
+            @Override
+            public void write(Object value, ByteBuffer target) {
+                byte[] bytes = (byte[]) value;
+                writeVarLong(target, bytes.length);
+                target.put(bytes);
+            }
+
+            @Override
+            public Object read(ByteBuffer source) {
+                byte[] bytes = new byte[(int) readVarLong(source)];
+                source.get(bytes);
+                return bytes;
+            }
+        }
+
+    }
+
+    /**
+     * Prefixes values with a presence marker so they may be null.
+     */
+    private record NullableCodec(ValueCodec codec) implements ValueCodec {
+
+        @Override
+        public int sizeOf(Object value) {
+            return value == null ? Byte.BYTES : Byte.BYTES + codec.sizeOf(value);
+        }
+
+        @Override
+        public void write(Object value, ByteBuffer target) {
+            if (value == null) {
+                target.put((byte) 0);
+                return;
+            }
+            target.put((byte) 1);
+            codec.write(value, target);
+        }
+
+        @Override
+        public Object read(ByteBuffer source) {
+            return source.get() == 0 ? null : codec.read(source);
+        }
+    }
+
+    private record EnumCodec(Object[] constants) implements ValueCodec {
+
+        @Override
+        public int sizeOf(Object value) {
+            return varLongSize(((Enum<?>) value).ordinal());
+        }
+
+        @Override
+        public void write(Object value, ByteBuffer target) {
+            writeVarLong(target, ((Enum<?>) value).ordinal());
+        }
+
+        @Override
+        public Object read(ByteBuffer source) {
+            return constants[(int) readVarLong(source)];
+        }
+    }
+
+    private record CollectionCodec(ValueCodec elementCodec, boolean set) implements ValueCodec {
+
+        @Override
+        public int sizeOf(Object value) {
+            Collection<?> elements = (Collection<?>) value;
+            int size = varLongSize(elements.size());
+            for (Object element : elements) {
+                size += elementCodec.sizeOf(element);
+            }
+            return size;
+        }
+
+        @Override
+        public void write(Object value, ByteBuffer target) {
+            Collection<?> elements = (Collection<?>) value;
+            writeVarLong(target, elements.size());
+            for (Object element : elements) {
+                elementCodec.write(element, target);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(ByteBuffer source) {
+            int size = (int) readVarLong(source);
+            Collection<Object> elements = set ? new LinkedHashSet<>() : new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                elements.add(elementCodec.read(source));
+            }
+            return set ? Collections.unmodifiableSet((Set<Object>) elements) : Collections.unmodifiableList((List<Object>) elements);
+        }
+    }
+
+    /**
+     * Nested record, written inline without type header.
+     */
+    private final class NestedRecordCodec implements ValueCodec {
+
+        private final Class<?> type;
+
+        NestedRecordCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public int sizeOf(Object value) {
+            return schemas.get(type).sizeOf(value);
+        }
+
+        @Override
+        public void write(Object value, ByteBuffer target) {
+            schemas.get(type).write(value, target);
+        }
+
+        @Override
+        public Object read(ByteBuffer source) {
+            return schemas.get(type).read(source);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        // One byte per started group of 7 bits, at least one byte
+        return Math.max(1, (70 - Long.numberOfLeadingZeros(value)) / 7);
+    }
+
+    private static void writeVarLong(ByteBuffer target, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer source) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = source.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in encoded domain event");
+    }
+
+    private static int utf8Length(String string) {
+        int length = string.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                utf8Length += 1;
+            } else if (!Character.isSurrogate(c)) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                // Two chars, four bytes
+                utf8Length += 2;
+                i++;
+            }
+            // Unpaired surrogates are written as '?', like String#getBytes does
+        }
+        return utf8Length;
+    }
+
+    private static void writeUtf8(String string, ByteBuffer target) {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                target.put((byte) c);
+            } else if (c < 0x800) {
+                target.put((byte) (0xC0 | c >> 6));
+                target.put((byte) (0x80 | c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                target.put((byte) (0xE0 | c >> 12));
+                target.put((byte) (0x80 | c >> 6 & 0x3F));
+                target.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                target.put((byte) (0xF0 | codePoint >> 18));
+                target.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                target.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                target.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                target.put((byte) '?');
+            }
+        }
+    }
+}
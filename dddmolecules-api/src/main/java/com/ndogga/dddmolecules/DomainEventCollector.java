@@ -23,4 +23,23 @@ public interface DomainEventCollector {
      * @param aggregateRoots the aggregates that may have domain events
      */
     void collectAndPublish(List<? extends AggregateRoot<?>> aggregateRoots);
+
+    /**
+     * Collect and publish all domain events from the aggregates of any collection.
+     * Implementations should stream events from each aggregate to the publisher rather than
+     * copying the aggregates or their events into intermediate lists.
+     * <p>
+     * The default implementation publishes each aggregate separately.
+     *
+     * @param aggregateRoots the aggregates that may have domain events
+     */
+    default void collectAndPublish(Iterable<? extends AggregateRoot<?>> aggregateRoots) {
+        if (aggregateRoots == null) {
+            return;
+        }
+
+        for (AggregateRoot<?> aggregateRoot : aggregateRoots) {
+            collectAndPublish(aggregateRoot);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.ndogga.dddmolecules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of serialized domain events, stored in memory-mapped segment files.
+ * <p>
+ * Records are copied into the mapped segment under a short lock, then the appending thread waits for them
+ * to be forced to disk. Forcing uses group commit: one thread forces the segment on behalf of every thread
+ * waiting at that time, so concurrent appends share a single {@code force()} instead of paying one each.
+ * <p>
+ * Segments have a fixed size and are named {@code journal-<sequence>.log}. When a record does not fit in the
+ * current segment, it is forced and a new one is started. Only the most recent segments are retained, see
+ * {@link #DomainEventJournal(Path, int, int)}. Reopening a directory starts a new segment after the existing ones.
+ * <p>
+ * Each record is framed by its length and CRC32, so a record torn by a crash is detected and ends the replay
+ * of its segment, see {@link #forEachRecord(Consumer)}.
+ */
+public class DomainEventJournal implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Guarded by writeLock
+    private Segment segment;
+    private long writtenPosition;
+    private boolean closed;
+
+    // Only advanced under flushLock
+    private volatile long durablePosition;
+
+    /**
+     * Open a journal in the given directory, creating it if needed.
+     * @param directory the directory holding the segment files
+     * @param segmentSize the size of a segment file in bytes, which bounds the size of a single record
+     * @param retainedSegments the number of segments to keep, older ones are deleted on rollover; zero or less keeps them all
+     */
+    public DomainEventJournal(Path directory, int segmentSize, int retainedSegments) {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Journal segment size must be greater than " + RECORD_HEADER_SIZE + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retainedSegments = retainedSegments;
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            long nextSequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+            segment = Segment.create(segmentPath(nextSequence), segmentSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open domain event journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Append records to the journal and wait until they are on disk.
+     * Records of a single call are stored in order, but not atomically: when the current segment fills up
+     * they are split across two segments, and a crash may keep only the first ones.
+     * @param records the serialized events, none of them empty
+     */
+    public void append(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        long end;
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Domain event journal in " + directory + " is closed");
+            }
+            for (byte[] record : records) {
+                int recordSize = RECORD_HEADER_SIZE + record.length;
+                if (record.length == 0 || recordSize > segmentSize) {
+                    throw new IllegalArgumentException("Journal records must be between 1 and "
+                            + (segmentSize - RECORD_HEADER_SIZE) + " bytes, got " + record.length);
+                }
+                if (segment.remaining() < recordSize) {
+                    roll();
+                }
+                segment.write(record);
+                writtenPosition += recordSize;
+            }
+            end = writtenPosition;
+        } finally {
+            writeLock.unlock();
+        }
+
+        awaitDurable(end);
+    }
+
+    /**
+     * Pass every valid record, oldest first, to the given action as a read-only buffer.
+     * Meant for replaying or auditing the journal; records appended during the call may or may not be seen.
+     * @param action the action to perform on each record
+     */
+    public void forEachRecord(Consumer<ByteBuffer> action) {
+        try {
+            for (Path path : listSegments()) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    Segment.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), action);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read domain event journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Force the pending records to disk and close the current segment.
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+            segment.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close domain event journal in " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            // The previous flush may have covered this position while we were waiting for the lock
+            if (durablePosition >= position) {
+                return;
+            }
+
+            // Everything written so far is covered, including records of threads now waiting for the lock
+            Segment current;
+            long target;
+            writeLock.lock();
+            try {
+                current = segment;
+                target = writtenPosition;
+            } finally {
+                writeLock.unlock();
+            }
+
+            current.force();
+            durablePosition = target;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void roll() {
+        // The full segment is forced before any record is written to the next one,
+        // so forcing the current segment always covers every record written before
+        try {
+            segment.force();
+            segment.close();
+            segment = Segment.create(segmentPath(sequenceOf(segment.path()) + 1), segmentSize);
+            applyRetention();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to roll domain event journal segment in " + directory, e);
+        }
+    }
+
+    private void applyRetention() throws IOException {
+        if (retainedSegments <= 0) {
+            return;
+        }
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(DomainEventJournal::isSegment).sorted().toList();
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * A segment file mapped in memory, records are framed as length, CRC32, then the record bytes.
+     * A zero length marks the end of the written records.
+     */
+    private static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static void read(ByteBuffer buffer, Consumer<ByteBuffer> action) {
+            int position = 0;
+            while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.limit()) {
+                    return;
+                }
+
+                ByteBuffer record = buffer.slice(position + RECORD_HEADER_SIZE, length).asReadOnlyBuffer();
+                CRC32 crc = new CRC32();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                    return;
+                }
+
+                action.accept(record);
+                position += RECORD_HEADER_SIZE + length;
+            }
+        }
+
+        Path path() {
+            return path;
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        void write(byte[] record) {
+            int offset = position;
+            CRC32 crc = new CRC32();
+            crc.update(record);
+
+            // The length is written last, a reader never sees a record before its content
+            buffer.put(offset + RECORD_HEADER_SIZE, record);
+            buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(offset, record.length);
+            position = offset + RECORD_HEADER_SIZE + record.length;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ndogga.dddmolecules;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receives measurements of the domain event pipeline, to be exported to a metrics system.
+ * <p>
+ * Every method has an empty default, so implementations only override what they record. Callers check
+ * {@link #isEnabled()} before taking any timestamp: with {@link #NONE}, the default of every component,
+ * the pipeline pays a single field read per call and nothing else.
+ */
+public interface DomainEventMetrics {
+
+    /**
+     * Metrics recording nothing.
+     */
+    DomainEventMetrics NONE = new DomainEventMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * Check if measurements are recorded at all.
+     * @return false if every recording method can be skipped
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Record a collectAndPublish call.
+     * @param aggregateCount the number of aggregates drained
+     * @param eventCount the number of events drained
+     * @param durationNanos the duration of the call, including synchronous publication
+     */
+    default void recordCollection(int aggregateCount, int eventCount, long durationNanos) {
+    }
+
+    /**
+     * Record an event drained from an aggregate.
+     * @param eventType the type of the event
+     */
+    default void recordEvent(Class<?> eventType) {
+    }
+
+    /**
+     * Record the delivery of events to their listeners, or their handoff when listeners run asynchronously.
+     * @param eventCount the number of events delivered
+     * @param durationNanos the duration of the delivery
+     */
+    default void recordPublication(int eventCount, long durationNanos) {
+    }
+
+    /**
+     * Record the listeners of a single event being called.
+     * @param eventType the type of the event
+     * @param durationNanos the time spent in the listeners
+     * @param failed true if a listener threw
+     */
+    default void recordListener(Class<?> eventType, long durationNanos, boolean failed) {
+    }
+
+    /**
+     * Record a `@PublishDomainEvents` scope.
+     * @param trackedAggregates the number of aggregates tracked during the scope
+     * @param durationNanos the duration of the scope, including the intercepted method
+     */
+    default void recordScope(int trackedAggregates, long durationNanos) {
+    }
+
+    /**
+     * Export a value sampled when metrics are read, such as a queue depth.
+     * @param name the metric name
+     * @param value supplies the current value
+     */
+    default void registerGauge(String name, LongSupplier value) {
+    }
+
+    /**
+     * Export a monotonically increasing count sampled when metrics are read, such as a rejection count.
+     * @param name the metric name
+     * @param count supplies the current count
+     */
+    default void registerCounter(String name, LongSupplier count) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.ndogga.dddmolecules;
+
+/**
+ * Notified each time an aggregate registers a domain event, see
+ * {@link AggregateRoot#setRegistrationListener(DomainEventRegistrationListener)}.
+ * Called on the thread registering the event, it must be fast and must not throw.
+ */
+@FunctionalInterface
+public interface DomainEventRegistrationListener {
+
+    /**
+     * Called after the event has been added to the aggregate.
+     * @param aggregate the aggregate that registered an event
+     */
+    void eventRegistered(AggregateRoot<?> aggregate);
+}
@@ -0,0 +1,16 @@
+package com.ndogga.dddmolecules;
+
+/**
+ * Converts a domain event to the bytes stored for it, e.g. in a {@link DomainEventJournal}.
+ */
+@FunctionalInterface
+public interface DomainEventSerializer {
+
+    /**
+     * Serialize a domain event.
+     * @param event the domain event
+     * @return the serialized event
+     */
+    byte[] serialize(Object event);
+
+}
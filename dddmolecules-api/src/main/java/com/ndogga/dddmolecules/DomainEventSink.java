@@ -0,0 +1,26 @@
+package com.ndogga.dddmolecules;
+
+/**
+ * Receives domain events one by one, as they are drained from aggregates.
+ * <p>
+ * A sink is opened for a single `collectAndPublish` call and completed once every aggregate has
+ * been drained. Implementations decide whether events are published as they arrive or buffered,
+ * e.g. until the surrounding transaction commits.
+ */
+@FunctionalInterface
+public interface DomainEventSink {
+
+    /**
+     * Accept a single domain event.
+     * @param source the aggregate the event was drained from
+     * @param event the domain event
+     */
+    void accept(AggregateRoot<?> source, Object event);
+
+    /**
+     * Called once after the last event of the `collectAndPublish` call has been accepted.
+     * Only called if at least one event was accepted.
+     */
+    default void complete() {
+    }
+}
@@ -0,0 +1,21 @@
+package com.ndogga.dddmolecules;
+
+import java.util.List;
+
+/**
+ * Receives the events of each publication alongside the listeners, e.g. to keep an audit log of them.
+ * <p>
+ * A tap sees the events once they are actually published: after commit when they were collected within
+ * a transaction, never for a transaction that rolled back. It is called once per collectAndPublish call,
+ * or once per transaction, before the listeners are called.
+ */
+@FunctionalInterface
+public interface DomainEventTap {
+
+    /**
+     * Called with every event of a publication.
+     * @param events the domain events, in publication order, never empty
+     */
+    void published(List<Object> events);
+
+}
@@ -0,0 +1,37 @@
+package com.ndogga.dddmolecules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DomainEventTap} appending published events to a {@link DomainEventJournal},
+ * giving a durable local audit log of domain events without an external broker.
+ * <p>
+ * The events of a publication are serialized and appended together, and the publication proceeds once
+ * they are on disk. Concurrent publications share the same flush, see {@link DomainEventJournal}.
+ * <p>
+ * Events are serialized with a {@link DomainEventCodec} unless another serializer is given.
+ */
+public class JournalDomainEventTap implements DomainEventTap {
+
+    private final DomainEventJournal journal;
+    private final DomainEventSerializer serializer;
+
+    public JournalDomainEventTap(DomainEventJournal journal) {
+        this(journal, new DomainEventCodec());
+    }
+
+    public JournalDomainEventTap(DomainEventJournal journal, DomainEventSerializer serializer) {
+        this.journal = journal;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void published(List<Object> events) {
+        List<byte[]> records = new ArrayList<>(events.size());
+        for (Object event : events) {
+            records.add(serializer.serialize(event));
+        }
+        journal.append(records);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reflective {@link DomainEventAccessor} used for classes without a generated accessor.
+ * <p>
+ * The `@DomainEvents` and `@AfterDomainEventPublication` methods are looked up once, when the
+ * accessor is created, and kept as {@link MethodHandle}s. Collecting events from an aggregate
+ * therefore never scans its methods or goes through {@link Method#invoke} again. Works for
+ * {@link AggregateRoot} subclasses as well as for any plain object using the annotations.
+ */
+final class MethodHandleDomainEventAccessor implements DomainEventAccessor<Object> {
+
+    private static final MethodType DOMAIN_EVENTS_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType AFTER_PUBLICATION_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private final Class<Object> type;
+    private final MethodHandle[] domainEventMethods;
+    private final MethodHandle[] afterPublicationMethods;
+    private final boolean aggregateRootBuffer;
+
+    @SuppressWarnings("unchecked")
+    MethodHandleDomainEventAccessor(Class<?> type) {
+        List<MethodHandle> domainEventMethods = new ArrayList<>();
+        List<MethodHandle> afterPublicationMethods = new ArrayList<>();
+        boolean ownMethods = false;
+
+        for (Method method : type.getMethods()) {
+            // Bridge methods carry the annotations of the method they bridge to, skip them to avoid double calls
+            if (method.isBridge()) {
+                continue;
+            }
+            boolean domainEvents = method.isAnnotationPresent(DomainEvents.class);
+            boolean afterPublication = method.isAnnotationPresent(AfterDomainEventPublication.class);
+            if (domainEvents) {
+                domainEventMethods.add(unreflect(method, DOMAIN_EVENTS_TYPE));
+            }
+            if (afterPublication) {
+                afterPublicationMethods.add(unreflect(method, AFTER_PUBLICATION_TYPE));
+            }
+            if ((domainEvents || afterPublication) && method.getDeclaringClass() != AggregateRoot.class) {
+                ownMethods = true;
+            }
+        }
+
+        this.type = (Class<Object>) type;
+        this.domainEventMethods = domainEventMethods.toArray(MethodHandle[]::new);
+        this.afterPublicationMethods = afterPublicationMethods.toArray(MethodHandle[]::new);
+        // Only drain the buffer directly when the subclass does not override or add annotated methods
+        this.aggregateRootBuffer = AggregateRoot.class.isAssignableFrom(type) && !ownMethods
+                && this.domainEventMethods.length == 1 && this.afterPublicationMethods.length == 1;
+    }
+
+    @Override
+    public Class<Object> aggregateType() {
+        return type;
+    }
+
+    @Override
+    public void collectDomainEvents(Object aggregate, Consumer<Object> sink) {
+        for (MethodHandle method : domainEventMethods) {
+            Object result;
+            try {
+                result = (Object) method.invokeExact(aggregate);
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to collect domain events from " + type.getSimpleName(), e);
+            }
+
+            if (result instanceof Collection<?> collection) {
+                collection.forEach(sink);
+            } else if (result != null) {
+                sink.accept(result);
+            }
+        }
+    }
+
+    @Override
+    public void afterDomainEventPublication(Object aggregate) {
+        for (MethodHandle method : afterPublicationMethods) {
+            try {
+                method.invokeExact(aggregate);
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to call after domain event publication method on " + type.getSimpleName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void drainDomainEvents(Object aggregate, Consumer<Object> sink) {
+        if (aggregateRootBuffer) {
+            ((AggregateRoot<?>) aggregate).drainDomainEvents(sink);
+        } else {
+            DomainEventAccessor.super.drainDomainEvents(aggregate, sink);
+        }
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(type);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to resolve domain event method " + method, e);
+        }
+    }
+}
@@ -1,58 +1,144 @@
 package com.ndogga.dddmolecules;
 
-import java.lang.reflect.Method;
+import com.ndogga.dddmolecules.jfr.CollectEvent;
+import com.ndogga.dddmolecules.jfr.TypeNames;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Implementation of DomainEventCollector that uses reflection to find
  * `@DomainEvents` and `@AfterDomainEventPublication` annotated methods.
  * <p>
+ * Annotated methods are resolved once per aggregate class and cached. Accessors generated by the
+ * `dddmolecules-processor` annotation processor are used instead of reflection when present,
+ * see {@link DomainEventAccessor}.
+ * <p>
+ * Aggregates are drained: their events are handed over and their buffer reset in a single pass
+ * before publishing, so events registered while publishing are kept for the next publication.
+ * Drained events flow straight into the {@link DomainEventSink} returned by {@link #openEventSink()}.
+ * <p>
+ * Large batches can optionally be drained in parallel on the common fork-join pool,
+ * see {@link #setParallelCollectionThreshold(int)}.
+ * <p>
+ * Superseded and duplicate events of {@link Coalesce} annotated types can optionally be dropped per
+ * aggregate before they reach the sink, see {@link #setCoalescing(boolean)}.
+ * <p>
+ * Each call, and each drained event, is reported to the {@link DomainEventMetrics} when set,
+ * see {@link #setMetrics(DomainEventMetrics)}, and recorded as a {@link CollectEvent} by the flight recorder.
+ * <p>
  * This provides a Spring Data JPA-like experience for domain event publishing
  * without depending on Spring Data.
  */
 public abstract class ReflectionEventCollector implements DomainEventCollector {
 
+    private int parallelCollectionThreshold;
+
+    private boolean coalescing;
+
+    private DomainEventMetrics metrics = DomainEventMetrics.NONE;
+
     @Override
     public void collectAndPublish(AggregateRoot<?> aggregateRoot) {
         if (aggregateRoot == null) {
             return;
         }
 
-        List<Object> events = collectDomainEvents(aggregateRoot);
-
-        if (!events.isEmpty()) {
-            // Publish events using the concrete implementation
-            publishEvents(events);
-
-            // Call cleanup methods
-            callAfterDomainEventPublication(aggregateRoot);
-        }
+        StreamingDrain drain = new StreamingDrain();
+        drain.drain(aggregateRoot);
+        drain.complete();
     }
 
     @Override
     public void collectAndPublish(List<? extends AggregateRoot<?>> aggregateRoots) {
-        if (aggregateRoots == null || aggregateRoots.isEmpty()) {
+        collectAndPublish((Iterable<? extends AggregateRoot<?>>) aggregateRoots);
+    }
+
+    @Override
+    public void collectAndPublish(Iterable<? extends AggregateRoot<?>> aggregateRoots) {
+        if (aggregateRoots == null) {
             return;
         }
 
-        List<Object> allEvents = new ArrayList<>();
+        StreamingDrain drain = new StreamingDrain();
+        if (parallelCollectionThreshold > 0
+                && aggregateRoots instanceof Collection<? extends AggregateRoot<?>> collection
+                && collection.size() >= parallelCollectionThreshold) {
+            drainInParallel(collection, drain);
+            drain.complete();
+            return;
+        }
 
-        // Collect events from all aggregates
+        // Each aggregate is drained straight into the sink, no intermediate event list is built
         for (AggregateRoot<?> aggregate : aggregateRoots) {
-            allEvents.addAll(collectDomainEvents(aggregate));
+            if (aggregate != null) {
+                drain.drain(aggregate);
+            }
         }
+        drain.complete();
+    }
+
+    /**
+     * Drain batches of at least the given number of aggregates in parallel on the common fork-join pool.
+     * Events still reach the sink grouped per aggregate and in the iteration order of the batch.
+     * <p>
+     * Only enable this when draining an aggregate does not touch state shared with other aggregates.
+     * @param parallelCollectionThreshold the minimum batch size, zero or less disables parallel draining
+     */
+    public void setParallelCollectionThreshold(int parallelCollectionThreshold) {
+        this.parallelCollectionThreshold = parallelCollectionThreshold;
+    }
+
+    /**
+     * Coalesce the events drained from each aggregate according to their {@link Coalesce} annotation.
+     * The events of an aggregate are then buffered until it is fully drained, instead of being streamed to the sink.
+     * @param coalescing true to drop superseded and duplicate events, false by default
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Report collection measurements to the given metrics.
+     * @param metrics the metrics, {@link DomainEventMetrics#NONE} by default
+     */
+    public void setMetrics(DomainEventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the metrics receiving the measurements of this collector.
+     * @return the metrics, never null
+     */
+    protected DomainEventMetrics getMetrics() {
+        return metrics;
+    }
 
-        if (!allEvents.isEmpty()) {
-            // Publish all events
-            publishEvents(allEvents);
+    /**
+     * Open the sink receiving the events of a single `collectAndPublish` call.
+     * Only called once the first event has been drained.
+     * <p>
+     * The default sink buffers the events and hands them to {@link #publishEvents(List)} on completion.
+     * Override to publish events as they are drained.
+     * @return the sink, never null
+     */
+    protected DomainEventSink openEventSink() {
+        List<Object> events = new ArrayList<>();
+        return new DomainEventSink() {
+            @Override
+            public void accept(AggregateRoot<?> source, Object event) {
+                events.add(event);
+            }
 
-            // Call cleanup methods on all aggregates
-            for (AggregateRoot<?> aggregate : aggregateRoots) {
-                callAfterDomainEventPublication(aggregate);
+            @Override
+            public void complete() {
+                publishEvents(events);
             }
-        }
+        };
     }
 
     /**
@@ -62,42 +148,116 @@ public abstract class ReflectionEventCollector implements DomainEventCollector {
      */
     protected abstract void publishEvents(List<Object> events);
 
-    private List<Object> collectDomainEvents(Object aggregate) {
-        List<Object> events = new ArrayList<>();
+    private void drainInParallel(Collection<? extends AggregateRoot<?>> aggregateRoots, StreamingDrain drain) {
+        // toList() keeps the encounter order, so the sink sees the same order as with a sequential drain
+        List<DrainedAggregate> drained = aggregateRoots.parallelStream()
+                .filter(Objects::nonNull)
+                .map(aggregate -> DrainedAggregate.drain(aggregate, coalescing))
+                .toList();
+
+        for (DrainedAggregate aggregate : drained) {
+            drain.enter(aggregate.source());
+            aggregate.events().forEach(drain);
+        }
+    }
 
-        Method[] methods = aggregate.getClass().getMethods();
-
-        for (Method method : methods) {
-            if (method.isAnnotationPresent(DomainEvents.class)) {
-                try {
-                    method.setAccessible(true);
-                    Object result = method.invoke(aggregate);
-
-                    if (result instanceof Collection<?> collection) {
-                        events.addAll(collection);
-                    } else if (result != null) {
-                        events.add(result);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to collect domain events from " + aggregate.getClass().getSimpleName(), e);
+    /**
+     * Events drained from one aggregate on a fork-join worker, waiting to be passed to the sink.
+     */
+    private record DrainedAggregate(AggregateRoot<?> source, List<Object> events) {
+
+        static DrainedAggregate drain(AggregateRoot<?> aggregate, boolean coalescing) {
+            List<Object> events = new ArrayList<>(aggregate.getDomainEventCount());
+            DomainEventAccessors.forType(aggregate.getClass()).drainDomainEvents(aggregate, events::add);
+            if (coalescing) {
+                DomainEventCoalescer.coalesce(events);
+            }
+            return new DrainedAggregate(aggregate, events);
+        }
+    }
+
+    /**
+     * Adapts the per-aggregate drain callback to the sink, opening it lazily on the first event.
+     */
+    private final class StreamingDrain implements Consumer<Object> {
+
+        private final DomainEventMetrics metrics = getMetrics();
+        private final long startTime = metrics.isEnabled() ? System.nanoTime() : 0;
+        private final CollectEvent recording = new CollectEvent();
+
+        private AggregateRoot<?> source;
+        private DomainEventSink sink;
+        private List<Object> coalesced;
+        private int aggregateCount;
+        private int eventCount;
+
+        // Only filled while the flight recorder records collections, which may start in the middle of a drain
+        private LinkedHashSet<Class<?>> aggregateTypes;
+        private LinkedHashSet<Class<?>> eventTypes;
+
+        StreamingDrain() {
+            recording.begin();
+        }
+
+        void enter(AggregateRoot<?> aggregate) {
+            source = aggregate;
+            aggregateCount++;
+            if (recording.isEnabled()) {
+                if (aggregateTypes == null) {
+                    aggregateTypes = new LinkedHashSet<>();
                 }
+                aggregateTypes.add(aggregate.getClass());
             }
         }
 
-        return events;
-    }
+        void drain(AggregateRoot<?> aggregate) {
+            enter(aggregate);
+            if (!coalescing) {
+                DomainEventAccessors.forType(aggregate.getClass()).drainDomainEvents(aggregate, this);
+                return;
+            }
 
-    private void callAfterDomainEventPublication(Object aggregate) {
-        Method[] methods = aggregate.getClass().getMethods();
+            // The aggregate's events are coalesced as a whole, then streamed; the list is reused across aggregates
+            if (coalesced == null) {
+                coalesced = new ArrayList<>();
+            }
+            DomainEventAccessors.forType(aggregate.getClass()).drainDomainEvents(aggregate, coalesced::add);
+            DomainEventCoalescer.coalesce(coalesced);
+            coalesced.forEach(this);
+            coalesced.clear();
+        }
 
-        for (Method method : methods) {
-            if (method.isAnnotationPresent(AfterDomainEventPublication.class)) {
-                try {
-                    method.setAccessible(true);
-                    method.invoke(aggregate);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to call after domain event publication method on " + aggregate.getClass().getSimpleName(), e);
+        @Override
+        public void accept(Object event) {
+            if (sink == null) {
+                sink = openEventSink();
+            }
+            eventCount++;
+            if (metrics.isEnabled()) {
+                metrics.recordEvent(event.getClass());
+            }
+            if (recording.isEnabled()) {
+                if (eventTypes == null) {
+                    eventTypes = new LinkedHashSet<>();
                 }
+                eventTypes.add(event.getClass());
+            }
+            sink.accept(source, event);
+        }
+
+        void complete() {
+            if (sink != null) {
+                sink.complete();
+            }
+            if (metrics.isEnabled()) {
+                metrics.recordCollection(aggregateCount, eventCount, System.nanoTime() - startTime);
+            }
+            if (recording.shouldCommit()) {
+                recording.aggregateCount = aggregateCount;
+                recording.aggregateTypes = TypeNames.of(aggregateTypes);
+                recording.eventCount = eventCount;
+                recording.eventTypes = TypeNames.of(eventTypes);
+                recording.commit();
             }
         }
     }
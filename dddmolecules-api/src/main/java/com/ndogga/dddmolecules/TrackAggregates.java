@@ -0,0 +1,31 @@
+package com.ndogga.dddmolecules;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to mark the repositories whose aggregates are tracked during @PublishDomainEvents methods,
+ * when tracking is restricted to annotated types.
+ * 
+ * On a type, every method of the type and of its subtypes is tracked: aggregates passed as arguments
+ * or returned, alone, in collections, arrays or optionals, are registered for publication. On a method,
+ * only that method is tracked.
+ * 
+ * Tracking is restricted to annotated types with domain.events.aop.tracking=annotated in the AOP starter,
+ * or by weaving the aspects with AspectJ, see the aop.xml of dddmolecules-aop.
+ * 
+ * Example:
+ * <pre>
+ * &#64;TrackAggregates
+ * public interface OrderRepository {
+ *     void save(Order order);
+ *     Optional&lt;Order&gt; findById(String orderId);
+ * }
+ * </pre>
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TrackAggregates {
+}
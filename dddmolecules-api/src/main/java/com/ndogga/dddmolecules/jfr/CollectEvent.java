@@ -0,0 +1,29 @@
+package com.ndogga.dddmolecules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a collectAndPublish call, from the first drained aggregate to the completion of the sink.
+ */
+@Name("com.ndogga.dddmolecules.Collect")
+@Label("Domain Event Collection")
+@Category("Domain Events")
+@Description("Domain events drained from aggregates and handed over to the publisher")
+public class CollectEvent extends jdk.jfr.Event {
+
+    @Label("Aggregates")
+    public int aggregateCount;
+
+    @Label("Aggregate Types")
+    public String aggregateTypes;
+
+    @Label("Events")
+    public int eventCount;
+
+    @Label("Event Types")
+    public String eventTypes;
+
+}
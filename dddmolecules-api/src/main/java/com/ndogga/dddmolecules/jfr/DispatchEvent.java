@@ -0,0 +1,23 @@
+package com.ndogga.dddmolecules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of the listeners of a single domain event being called.
+ */
+@Name("com.ndogga.dddmolecules.Dispatch")
+@Label("Domain Event Dispatch")
+@Category("Domain Events")
+@Description("Listeners of a domain event called")
+public class DispatchEvent extends jdk.jfr.Event {
+
+    @Label("Event Type")
+    public Class<?> eventType;
+
+    @Label("Failed")
+    public boolean failed;
+
+}
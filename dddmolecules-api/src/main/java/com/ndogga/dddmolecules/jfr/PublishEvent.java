@@ -0,0 +1,27 @@
+package com.ndogga.dddmolecules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of the delivery of published domain events to their listeners, or to the
+ * thread running them.
+ */
+@Name("com.ndogga.dddmolecules.Publish")
+@Label("Domain Event Publication")
+@Category("Domain Events")
+@Description("Domain events delivered to their listeners, synchronously or by handing them over")
+public class PublishEvent extends jdk.jfr.Event {
+
+    @Label("Events")
+    public int eventCount;
+
+    @Label("Event Types")
+    public String eventTypes;
+
+    @Label("Delivery")
+    public String delivery;
+
+}
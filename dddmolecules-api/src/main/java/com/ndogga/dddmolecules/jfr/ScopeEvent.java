@@ -0,0 +1,35 @@
+package com.ndogga.dddmolecules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a `@PublishDomainEvents` scope, from the call of the intercepted method to the
+ * publication of the events of its tracked aggregates.
+ */
+@Name("com.ndogga.dddmolecules.Scope")
+@Label("Domain Event Scope")
+@Category("Domain Events")
+@Description("@PublishDomainEvents method call, including the publication of its domain events")
+public class ScopeEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Tracked Aggregates")
+    public int trackedAggregates;
+
+    @Label("Aggregate Types")
+    public String aggregateTypes;
+
+    @Label("Collection Duration")
+    @Timespan
+    public long collectDuration;
+
+    @Label("Failed")
+    public boolean failed;
+
+}
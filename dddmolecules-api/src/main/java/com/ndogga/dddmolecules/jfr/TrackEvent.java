@@ -0,0 +1,23 @@
+package com.ndogga.dddmolecules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a repository call intercepted while domain event tracking is active.
+ */
+@Name("com.ndogga.dddmolecules.Track")
+@Label("Aggregate Tracking")
+@Category("Domain Events")
+@Description("Repository call whose aggregate arguments and results were inspected for domain events")
+public class TrackEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Aggregates")
+    public int aggregateCount;
+
+}
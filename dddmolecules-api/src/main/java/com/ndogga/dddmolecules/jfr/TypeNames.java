@@ -0,0 +1,25 @@
+package com.ndogga.dddmolecules.jfr;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Formats the types recorded in flight recorder events.
+ */
+public final class TypeNames {
+
+    private TypeNames() {
+    }
+
+    /**
+     * Join the simple names of the given types.
+     * @param types the types, in recording order, null when none were recorded
+     * @return the comma-separated simple names, empty when no type was recorded
+     */
+    public static String of(Collection<Class<?>> types) {
+        if (types == null) {
+            return "";
+        }
+        return types.stream().map(Class::getSimpleName).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,167 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DomainEventCoalescerTest {
+
+    @Test
+    void keepsTheLastEventOfAKeyAtItsPosition() {
+        List<Object> events = coalesce(
+                new StatusChanged("a", 1), new Shipped("a"), new StatusChanged("b", 1), new StatusChanged("a", 2));
+
+        assertEquals(List.of(new Shipped("a"), new StatusChanged("b", 1), new StatusChanged("a", 2)), events);
+    }
+
+    @Test
+    void dropsTheLaterDuplicatesOfAKey() {
+        List<Object> events = coalesce(
+                new Reserved("a", 1), new Reserved("b", 1), new Reserved("a", 2), new Reserved("b", 2));
+
+        assertEquals(List.of(new Reserved("a", 1), new Reserved("b", 1)), events);
+    }
+
+    @Test
+    void coalescesNullKeyValuesTogether() {
+        List<Object> events = coalesce(
+                new StatusChanged(null, 1), new StatusChanged("a", 1), new StatusChanged(null, 2));
+
+        assertEquals(List.of(new StatusChanged("a", 1), new StatusChanged(null, 2)), events);
+    }
+
+    @Test
+    void leavesPlainEventsInPlace() {
+        List<Object> events = coalesce(
+                new Shipped("a"), new StatusChanged("a", 1), new Shipped("a"), new Reserved("a", 1),
+                new StatusChanged("a", 2), new Reserved("a", 2), new Shipped("a"));
+
+        assertEquals(List.of(new Shipped("a"), new Shipped("a"), new Reserved("a", 1),
+                new StatusChanged("a", 2), new Shipped("a")), events);
+    }
+
+    @Test
+    void neverMixesTheKeysOfDifferentTypes() {
+        List<Object> events = coalesce(new StatusChanged("a", 1), new Reserved("a", 1), new StatusChanged("a", 2));
+
+        assertEquals(List.of(new Reserved("a", 1), new StatusChanged("a", 2)), events);
+    }
+
+    @Test
+    void publishesEventsWithAnInvalidKeyWithoutCoalescing() {
+        List<Object> events = coalesce(new Misnamed("a"), new StatusChanged("a", 1), new Misnamed("a"),
+                new StatusChanged("a", 2));
+
+        assertEquals(List.of(new Misnamed("a"), new Misnamed("a"), new StatusChanged("a", 2)), events);
+    }
+
+    @Test
+    void leavesTheEventsWholeWhenAKeyCannotBeRead() {
+        List<Object> events = coalesce(new StatusChanged("a", 1), new Unreadable("a"), new StatusChanged("a", 2));
+
+        assertEquals(List.of(new StatusChanged("a", 1), new Unreadable("a"), new StatusChanged("a", 2)), events);
+    }
+
+    @Test
+    void coalescesEachAggregateOfABatch() {
+        assertEquals(List.of(new StatusChanged("a", 2), new Reserved("a", 1), new Reserved("a", 2),
+                new StatusChanged("a", 4)), collect(0));
+    }
+
+    @Test
+    void coalescesEachAggregateOfABatchDrainedInParallel() {
+        assertEquals(List.of(new StatusChanged("a", 2), new Reserved("a", 1), new Reserved("a", 2),
+                new StatusChanged("a", 4)), collect(1));
+    }
+
+    @Test
+    void publishesTheEventsOfAnInvalidKeyDrainedInParallel() {
+        Order order = new Order();
+        order.register(new Misnamed("a"));
+        order.register(new Misnamed("a"));
+        Recorder collector = new Recorder(1);
+
+        collector.collectAndPublish(List.of(order));
+
+        assertEquals(List.of(new Misnamed("a"), new Misnamed("a")), collector.published);
+        assertEquals(0, order.getDomainEventCount());
+    }
+
+    private static List<Object> coalesce(Object... events) {
+        List<Object> list = new ArrayList<>(List.of(events));
+        DomainEventCoalescer.coalesce(list);
+        return list;
+    }
+
+    // Events of an aggregate are coalesced, never across the aggregates of a batch
+    private static List<Object> collect(int parallelCollectionThreshold) {
+        Order first = new Order();
+        first.register(new StatusChanged("a", 1));
+        first.register(new StatusChanged("a", 2));
+        first.register(new Reserved("a", 1));
+        Order second = new Order();
+        second.register(new Reserved("a", 2));
+        second.register(new StatusChanged("a", 3));
+        second.register(new StatusChanged("a", 4));
+        second.register(new Reserved("a", 3));
+        Recorder collector = new Recorder(parallelCollectionThreshold);
+
+        collector.collectAndPublish(List.of(first, second));
+
+        return collector.published;
+    }
+
+    @Coalesce(key = "orderId")
+    record StatusChanged(String orderId, int status) {
+    }
+
+    @Coalesce(key = "orderId", mode = Coalesce.Mode.FIRST)
+    record Reserved(String orderId, int quantity) {
+    }
+
+    record Shipped(String orderId) {
+    }
+
+    @Coalesce(key = "id")
+    record Misnamed(String orderId) {
+    }
+
+    @Coalesce(key = "orderId")
+    record Unreadable(String orderId) {
+
+        @Override
+        public String orderId() {
+            throw new IllegalStateException("Unreadable");
+        }
+    }
+
+    static class Order extends AggregateRoot<Long> {
+
+        void register(Object event) {
+            registerEvent(event);
+        }
+
+        @Override
+        public Long getId() {
+            return 1L;
+        }
+    }
+
+    static class Recorder extends ReflectionEventCollector {
+
+        final List<Object> published = new ArrayList<>();
+
+        Recorder(int parallelCollectionThreshold) {
+            setCoalescing(true);
+            setParallelCollectionThreshold(parallelCollectionThreshold);
+        }
+
+        @Override
+        protected void publishEvents(List<Object> events) {
+            published.addAll(events);
+        }
+    }
+}
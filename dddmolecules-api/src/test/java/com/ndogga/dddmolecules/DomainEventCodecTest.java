@@ -0,0 +1,260 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DomainEventCodecTest {
+
+    private final DomainEventCodec codec = new DomainEventCodec();
+
+    @Test
+    void roundTripsEveryComponentType() {
+        Everything event = new Everything(true, (byte) -7, (short) 1234, 'é', -42, Long.MAX_VALUE, 1.5f, -2.25,
+                Boolean.FALSE, (byte) 3, (short) -3, 'z', Integer.MIN_VALUE, Long.MIN_VALUE, Float.NaN, Double.NEGATIVE_INFINITY,
+                "order", UUID.randomUUID(), new BigInteger("-123456789012345678901234567890"), new BigDecimal("-12.3450"),
+                Instant.ofEpochSecond(-1, 999_999_999), LocalDate.of(1969, 12, 31), Status.SHIPPED,
+                new Line("sku-1", 2), List.of(new Line("sku-2", 1), new Line("sku-3", 5)), Set.of("gift", "express"));
+
+        assertEquals(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsNullReferences() {
+        Everything event = new Everything(false, (byte) 0, (short) 0, 'a', 0, 0, 0, 0,
+                null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+
+        assertEquals(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsNullElementsAndEmptyCollections() {
+        Lines event = new Lines(Arrays.asList(new Line("sku-1", 1), null), Set.of());
+
+        Lines decoded = (Lines) roundTrip(event);
+
+        assertEquals(event, decoded);
+        assertNull(decoded.lines().get(1));
+    }
+
+    @Test
+    void keepsTheIterationOrderOfSets() {
+        Lines event = new Lines(List.of(), new LinkedHashSet<>(List.of("c", "a", "b")));
+
+        assertEquals(List.of("c", "a", "b"), List.copyOf(((Lines) roundTrip(event)).tags()));
+    }
+
+    @Test
+    void roundTripsByteArrays() {
+        byte[] payload = new byte[300];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        assertArrayEquals(payload, ((Attachment) roundTrip(new Attachment(payload))).content());
+        assertArrayEquals(new byte[0], ((Attachment) roundTrip(new Attachment(new byte[0]))).content());
+    }
+
+    @Test
+    void encodesIntegersAsZigzagVarints() {
+        int header = codec.sizeOf(new LongValue(0)) - 1;
+
+        // Zigzag maps 0, -1, 1, -2... to 0, 1, 2, 3..., each varint byte carries 7 bits
+        assertEquals(1, codec.sizeOf(new LongValue(0)) - header);
+        assertEquals(1, codec.sizeOf(new LongValue(-1)) - header);
+        assertEquals(1, codec.sizeOf(new LongValue(63)) - header);
+        assertEquals(1, codec.sizeOf(new LongValue(-64)) - header);
+        assertEquals(2, codec.sizeOf(new LongValue(64)) - header);
+        assertEquals(2, codec.sizeOf(new LongValue(-65)) - header);
+        assertEquals(2, codec.sizeOf(new LongValue(8191)) - header);
+        assertEquals(3, codec.sizeOf(new LongValue(8192)) - header);
+        assertEquals(5, codec.sizeOf(new LongValue(Integer.MAX_VALUE)) - header);
+        assertEquals(10, codec.sizeOf(new LongValue(Long.MAX_VALUE)) - header);
+        assertEquals(10, codec.sizeOf(new LongValue(Long.MIN_VALUE)) - header);
+    }
+
+    @Test
+    void roundTripsVarintBoundaries() {
+        for (int bits = 0; bits < Long.SIZE; bits++) {
+            long power = 1L << bits;
+            for (long value : new long[]{power - 1, power, power + 1, -power, -power - 1, -power + 1}) {
+                assertEquals(new LongValue(value), roundTrip(new LongValue(value)));
+                assertEquals(new IntValue((int) value), roundTrip(new IntValue((int) value)));
+            }
+        }
+    }
+
+    @Test
+    void encodesStringsAsUtf8() {
+        for (String value : List.of("", "ascii", "é", "ß€", "日本語", "🚀 launch", "mixed é € 🚀",
+                "\u007F\u0080\u07FF\u0800\uFFFF", "\uD7FF\uE000")) {
+            StringValue event = new StringValue(value);
+            byte[] encoded = codec.serialize(event);
+
+            assertEquals(value, ((StringValue) codec.decode(ByteBuffer.wrap(encoded))).value());
+            // The value is the last component: its UTF-8 bytes end the event
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(utf8, Arrays.copyOfRange(encoded, encoded.length - utf8.length, encoded.length));
+        }
+    }
+
+    @Test
+    void replacesUnpairedSurrogatesLikeStringGetBytes() {
+        for (String value : List.of("\uD83D", "a\uDE80b", "\uD83Dx", "\uDE80\uD83D", "end\uD83D")) {
+            StringValue event = new StringValue(value);
+            byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(new String(expected, StandardCharsets.UTF_8), ((StringValue) roundTrip(event)).value());
+            assertEquals(codec.sizeOf(new StringValue("")) + expected.length, codec.sizeOf(event));
+        }
+    }
+
+    @Test
+    void sizeOfMatchesEncodedBytes() {
+        List<Object> events = List.of(new LongValue(-1), new StringValue("日本語 🚀"), new Lines(List.of(new Line("a", 1)), Set.of("x")),
+                new Attachment(new byte[200]), new Tree("root", List.of(new Tree("leaf", List.of()))));
+        for (Object event : events) {
+            ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(event) + 16);
+            codec.encode(event, buffer);
+
+            assertEquals(codec.sizeOf(event), buffer.position());
+        }
+    }
+
+    @Test
+    void decodesConsecutiveEventsOfAlternatingTypes() {
+        List<Object> events = List.of(new LongValue(1), new LongValue(2), new StringValue("three"), new LongValue(4), new StringValue("five"));
+        ByteBuffer buffer = ByteBuffer.allocate(events.stream().mapToInt(codec::sizeOf).sum());
+        events.forEach(event -> codec.encode(event, buffer));
+        buffer.flip();
+
+        for (Object event : events) {
+            assertEquals(event, codec.decode(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void decodesFromDirectAndLittleEndianBuffers() {
+        Everything event = new Everything(true, (byte) 1, (short) -2, 'ç', 3, -4, 5f, 6d, true, (byte) 7, (short) 8, '9', 10, 11L, 12f, 13d,
+                "direct €", UUID.randomUUID(), BigInteger.TEN, BigDecimal.ONE, Instant.EPOCH, LocalDate.EPOCH, Status.PLACED,
+                new Line("sku", 1), List.of(), Set.of());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.sizeOf(event)).order(ByteOrder.LITTLE_ENDIAN);
+        codec.encode(event, buffer);
+        buffer.flip();
+
+        assertEquals(event, codec.decode(buffer));
+    }
+
+    @Test
+    void roundTripsRecursiveRecords() {
+        Tree tree = new Tree("root", List.of(new Tree("left", List.of()), new Tree("right", List.of(new Tree("leaf", List.of())))));
+
+        assertEquals(tree, roundTrip(tree));
+    }
+
+    @Test
+    void rejectsEventsEncodedWithOtherComponents() {
+        byte[] encoded = codec.serialize(new LongValue(1));
+        // The fingerprint follows the varint length and the type name
+        int fingerprintOffset = 1 + LongValue.class.getName().length();
+        encoded[fingerprintOffset] ^= 1;
+
+        assertThrows(IllegalStateException.class, () -> codec.decode(ByteBuffer.wrap(encoded)));
+    }
+
+    @Test
+    void fingerprintsTheConstantsOfEnumsAndTheComponentsOfNestedRecords() {
+        String prefix = DomainEventCodecTest.class.getName() + "$";
+
+        assertEquals(List.of(
+                "status:" + prefix + "Status[PLACED, SHIPPED]",
+                "line:" + prefix + "Line[sku:java.lang.String, quantity:int]",
+                "history:java.util.List<" + prefix + "Status>[PLACED, SHIPPED]"), DomainEventCodec.describe(Shipment.class));
+    }
+
+    @Test
+    void fingerprintsRecursiveRecordsOnce() {
+        String prefix = DomainEventCodecTest.class.getName() + "$";
+
+        assertEquals(List.of("name:java.lang.String", "children:java.util.List<" + prefix + "Tree>"),
+                DomainEventCodec.describe(Tree.class));
+    }
+
+    @Test
+    void rejectsMalformedVarints() {
+        ByteBuffer buffer = ByteBuffer.allocate(11);
+        for (int i = 0; i < 11; i++) {
+            buffer.put((byte) 0xFF);
+        }
+        buffer.flip();
+
+        assertThrows(IllegalStateException.class, () -> codec.decode(buffer));
+    }
+
+    @Test
+    void rejectsUnsupportedEvents() {
+        assertThrows(IllegalArgumentException.class, () -> codec.sizeOf("not a record"));
+        assertThrows(IllegalArgumentException.class, () -> codec.serialize(new Unsupported(Map.of())));
+    }
+
+    enum Status {
+        PLACED, SHIPPED
+    }
+
+    record Line(String sku, int quantity) {
+    }
+
+    record Everything(boolean flag, byte tiny, short small, char letter, int count, long total, float ratio, double amount,
+                      Boolean boxedFlag, Byte boxedTiny, Short boxedSmall, Character boxedLetter, Integer boxedCount,
+                      Long boxedTotal, Float boxedRatio, Double boxedAmount,
+                      String name, UUID id, BigInteger big, BigDecimal price, Instant at, LocalDate day, Status status,
+                      Line line, List<Line> lines, Set<String> tags) {
+    }
+
+    record Lines(List<Line> lines, Set<String> tags) {
+    }
+
+    record Shipment(Status status, Line line, List<Status> history) {
+    }
+
+    record Attachment(byte[] content) {
+    }
+
+    record LongValue(long value) {
+    }
+
+    record IntValue(int value) {
+    }
+
+    record StringValue(String value) {
+    }
+
+    record Tree(String name, List<Tree> children) {
+    }
+
+    record Unsupported(Map<String, String> values) {
+    }
+
+    private Object roundTrip(Object event) {
+        return codec.decode(ByteBuffer.wrap(codec.serialize(event)));
+    }
+}
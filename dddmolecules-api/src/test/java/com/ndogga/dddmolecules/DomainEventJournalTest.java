@@ -0,0 +1,207 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DomainEventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAppendedRecordsInOrder() {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            journal.append(List.of(record("a"), record("b")));
+            journal.append(List.of(record("c")));
+
+            assertEquals(List.of("a", "b", "c"), replay(journal));
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegmentsAndKeepsTheRetainedOnes() throws IOException {
+        // Each record takes 8 header bytes + 2 bytes, so a 32 bytes segment holds 3 of them
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 32, 2)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(List.of(record("r" + i)));
+            }
+
+            assertEquals(2, segmentCount());
+            // The last full segment and the current one
+            assertEquals(List.of("r6", "r7", "r8", "r9"), replay(journal));
+        }
+    }
+
+    @Test
+    void splitsTheRecordsOfOneCallAcrossSegments() {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 32, 0)) {
+            journal.append(List.of(record("a0"), record("a1")));
+            journal.append(List.of(record("b0"), record("b1"), record("b2")));
+
+            assertEquals(List.of("a0", "a1", "b0", "b1", "b2"), replay(journal));
+        }
+    }
+
+    @Test
+    void stopsReplayingSegmentAtCorruptedRecord() throws IOException {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            journal.append(List.of(record("a"), record("b"), record("c")));
+        }
+
+        // Flip a byte of the second record, whose content starts after the 9 bytes of the first one and its own header
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer corrupted = ByteBuffer.wrap(new byte[]{'x'});
+            channel.write(corrupted, 9 + 8);
+        }
+
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            assertEquals(List.of("a"), replay(journal));
+        }
+    }
+
+    @Test
+    void stopsReplayingSegmentAtTornRecord() throws IOException {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            journal.append(List.of(record("a"), record("b")));
+        }
+
+        // A length running past the end of the segment, as left by a crash in the middle of a write
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 2048), 9);
+        }
+
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            assertEquals(List.of("a"), replay(journal));
+        }
+    }
+
+    @Test
+    void continuesAfterExistingSegmentsWhenReopened() throws IOException {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            journal.append(List.of(record("a")));
+        }
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            journal.append(List.of(record("b")));
+
+            assertEquals(2, segmentCount());
+            assertEquals(List.of("a", "b"), replay(journal));
+        }
+    }
+
+    @Test
+    void keepsEveryRecordOfConcurrentAppends() throws Exception {
+        int threads = 8;
+        int appendsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 4096, 0)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> appends = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                appends.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        journal.append(List.of(record(thread + ":" + i + ":0"), record(thread + ":" + i + ":1")));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> append : appends) {
+                append.get();
+            }
+
+            List<String> records = replay(journal);
+            assertEquals(threads * appendsPerThread * 2, records.size());
+            assertEquals(records.size(), new HashSet<>(records).size());
+
+            // Each thread's records are replayed in the order it appended them
+            for (int t = 0; t < threads; t++) {
+                String prefix = t + ":";
+                List<String> own = records.stream().filter(record -> record.startsWith(prefix)).toList();
+                for (int i = 0; i < appendsPerThread; i++) {
+                    assertEquals(prefix + i + ":0", own.get(i * 2));
+                    assertEquals(prefix + i + ":1", own.get(i * 2 + 1));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedRecords() {
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 32, 0)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(List.of(new byte[0])));
+            assertThrows(IllegalArgumentException.class, () -> journal.append(List.of(new byte[25])));
+
+            // The largest record fills a whole segment
+            journal.append(List.of(new byte[24]));
+            assertEquals(1, replay(journal).size());
+        }
+    }
+
+    @Test
+    void rejectsAppendsOnceClosed() {
+        DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0);
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> journal.append(List.of(record("a"))));
+    }
+
+    @Test
+    void tapJournalsPublishedEvents() {
+        DomainEventCodec codec = new DomainEventCodec();
+        try (DomainEventJournal journal = new DomainEventJournal(directory, 1024, 0)) {
+            new JournalDomainEventTap(journal, codec).published(List.of(new OrderPlaced(1, "Ada"), new OrderPlaced(2, "Grace")));
+
+            List<Object> events = new ArrayList<>();
+            journal.forEachRecord(record -> events.add(codec.decode(record)));
+            assertEquals(List.of(new OrderPlaced(1, "Ada"), new OrderPlaced(2, "Grace")), events);
+        }
+    }
+
+    record OrderPlaced(long orderId, String customer) {
+    }
+
+    private static byte[] record(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> replay(DomainEventJournal journal) {
+        List<String> records = new ArrayList<>();
+        journal.forEachRecord(record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+        return records;
+    }
+
+    private int segmentCount() throws IOException {
+        return segments().size();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
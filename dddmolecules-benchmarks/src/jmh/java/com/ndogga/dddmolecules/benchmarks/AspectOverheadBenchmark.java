@@ -0,0 +1,146 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.PublishDomainEvents;
+import com.ndogga.dddmolecules.TrackAggregates;
+import com.ndogga.dddmolecules.aop.DomainEventPublishingAspect;
+import com.ndogga.dddmolecules.aop.RepositoryEventTrackingAspect;
+import com.ndogga.dddmolecules.aop.TrackAggregatesAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+/**
+ * Overhead of the AOP aspects on an application service placing an order through a repository.
+ * <p>
+ * - baseline: no proxy, no events published
+ * - manualPublishing: no proxy, the service publishes its aggregate itself, the cost the aspects replace
+ * - repositoryTracking: the repository is proxied by {@link RepositoryEventTrackingAspect}, outside of any scope
+ * - annotatedRepositoryTracking: the same with {@link TrackAggregatesAspect}, the repository being annotated
+ * - publishingScope: both aspects, the service being a `@PublishDomainEvents` scope
+ * <p>
+ * The aspects are applied by Spring AOP proxies, as done by the AOP starter.
+ */
+@State(Scope.Thread)
+public class AspectOverheadBenchmark {
+
+    private OrderService plainService;
+    private OrderService manualService;
+    private OrderService trackedRepositoryService;
+    private OrderService annotatedRepositoryService;
+    private OrderService publishingService;
+
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        ReflectionEventCollectorBenchmark.CountingCollector collector = new ReflectionEventCollectorBenchmark.CountingCollector();
+
+        plainService = new PlacingOrderService(new InMemoryOrderRepository(), null);
+        manualService = new PlacingOrderService(new InMemoryOrderRepository(), collector);
+
+        OrderRepository trackedRepository = proxy(new InMemoryOrderRepository(), OrderRepository.class, new RepositoryEventTrackingAspect());
+        trackedRepositoryService = new PlacingOrderService(trackedRepository, null);
+        annotatedRepositoryService = new PlacingOrderService(
+                proxy(new InMemoryOrderRepository(), OrderRepository.class, new TrackAggregatesAspect()), null);
+        publishingService = proxy(new PublishingOrderService(trackedRepository), OrderService.class,
+                new DomainEventPublishingAspect(collector));
+    }
+
+    @Benchmark
+    public BenchmarkOrder baseline() {
+        return plainService.placeOrder(nextId++);
+    }
+
+    @Benchmark
+    public BenchmarkOrder manualPublishing() {
+        return manualService.placeOrder(nextId++);
+    }
+
+    @Benchmark
+    public BenchmarkOrder repositoryTracking() {
+        return trackedRepositoryService.placeOrder(nextId++);
+    }
+
+    @Benchmark
+    public BenchmarkOrder annotatedRepositoryTracking() {
+        return annotatedRepositoryService.placeOrder(nextId++);
+    }
+
+    @Benchmark
+    public BenchmarkOrder publishingScope() {
+        return publishingService.placeOrder(nextId++);
+    }
+
+    private static <T> T proxy(T target, Class<T> type, Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(type);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @TrackAggregates
+    public interface OrderRepository {
+
+        BenchmarkOrder save(BenchmarkOrder order);
+    }
+
+    public interface OrderService {
+
+        BenchmarkOrder placeOrder(long id);
+    }
+
+    static class InMemoryOrderRepository implements OrderRepository {
+
+        private BenchmarkOrder last;
+
+        @Override
+        public BenchmarkOrder save(BenchmarkOrder order) {
+            last = order;
+            return order;
+        }
+    }
+
+    static class PlacingOrderService implements OrderService {
+
+        private final OrderRepository repository;
+        private final DomainEventCollector collector;
+
+        PlacingOrderService(OrderRepository repository, DomainEventCollector collector) {
+            this.repository = repository;
+            this.collector = collector;
+        }
+
+        @Override
+        public BenchmarkOrder placeOrder(long id) {
+            BenchmarkOrder order = new BenchmarkOrder(id);
+            order.place(1);
+            repository.save(order);
+            if (collector != null) {
+                collector.collectAndPublish(order);
+            } else {
+                order.clearDomainEvents();
+            }
+            return order;
+        }
+    }
+
+    static class PublishingOrderService implements OrderService {
+
+        private final OrderRepository repository;
+
+        PublishingOrderService(OrderRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        @PublishDomainEvents
+        public BenchmarkOrder placeOrder(long id) {
+            BenchmarkOrder order = new BenchmarkOrder(id);
+            order.place(1);
+            return repository.save(order);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Aggregate used by the benchmarks, registering record events shaped like the ones of a real application.
+ */
+public class BenchmarkOrder extends AggregateRoot<Long> {
+
+    private final long id;
+
+    public BenchmarkOrder(long id) {
+        this.id = id;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Register the given number of events, a placement followed by line additions.
+     * @param events the number of events to register
+     */
+    public void place(int events) {
+        registerEvent(placed(id));
+        for (int i = 1; i < events; i++) {
+            registerEvent(new LineAdded(id, "SKU-" + i, i, BigDecimal.valueOf(1999, 2)));
+        }
+    }
+
+    static Placed placed(long orderId) {
+        return new Placed(orderId, new UUID(orderId, orderId), "customer-" + orderId, BigDecimal.valueOf(4999, 2), Status.PENDING,
+                List.of(new Line("SKU-1", 1, BigDecimal.valueOf(1999, 2)), new Line("SKU-2", 2, BigDecimal.valueOf(1500, 2))));
+    }
+
+    public enum Status {
+        PENDING,
+        CONFIRMED
+    }
+
+    public record Line(String sku, int quantity, BigDecimal unitPrice) {
+    }
+
+    public record Placed(long orderId, UUID customerId, String customerName, BigDecimal total, Status status, List<Line> lines) {
+    }
+
+    public record LineAdded(long orderId, String sku, int quantity, BigDecimal unitPrice) {
+    }
+}
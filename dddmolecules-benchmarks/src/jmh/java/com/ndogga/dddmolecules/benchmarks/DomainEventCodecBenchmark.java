@@ -0,0 +1,82 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndogga.dddmolecules.DomainEventCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link DomainEventCodec} against Jackson, the JSON serialization of the outbox, encoding and decoding
+ * the same record event. The serializing benchmarks also report the throughput of encoded bytes, divided by
+ * the throughput of operations it gives the encoded size.
+ */
+@State(Scope.Thread)
+public class DomainEventCodecBenchmark {
+
+    private final DomainEventCodec codec = new DomainEventCodec();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BenchmarkOrder.Placed event;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        event = BenchmarkOrder.placed(42);
+        buffer = ByteBuffer.allocate(1024);
+
+        encoded = ByteBuffer.wrap(codec.serialize(event));
+        json = objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public int encodeCodec() {
+        buffer.clear();
+        codec.encode(event, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public byte[] serializeCodec(EncodedBytes encodedBytes) {
+        byte[] bytes = codec.serialize(event);
+        encodedBytes.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] serializeJson(EncodedBytes encodedBytes) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(event);
+        encodedBytes.bytes += bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decodeCodec() {
+        return codec.decode(encoded.duplicate());
+    }
+
+    @Benchmark
+    public Object decodeJson() throws IOException {
+        return objectMapper.readValue(json, BenchmarkOrder.Placed.class);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EncodedBytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
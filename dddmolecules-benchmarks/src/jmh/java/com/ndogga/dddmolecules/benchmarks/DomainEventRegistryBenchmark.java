@@ -0,0 +1,58 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.aop.DomainEventRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Tracking cycles of the {@link DomainEventRegistry}: start tracking, register aggregates, drain them,
+ * as done by every `@PublishDomainEvents` scope. The aggregates keep their events, they are never published.
+ */
+@State(Scope.Thread)
+public class DomainEventRegistryBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int aggregates;
+
+    private BenchmarkOrder[] orders;
+
+    @Setup
+    public void setUp() {
+        orders = new BenchmarkOrder[aggregates];
+        for (int i = 0; i < aggregates; i++) {
+            orders[i] = new BenchmarkOrder(i);
+            orders[i].place(1);
+        }
+    }
+
+    @Benchmark
+    public int trackRegisterDrain() {
+        DomainEventRegistry.startTracking();
+        for (BenchmarkOrder order : orders) {
+            DomainEventRegistry.registerAggregateWithEvents(order);
+        }
+        return DomainEventRegistry.getTrackedAggregatesAndStopTracking().size();
+    }
+
+    @Benchmark
+    public int registerTwice() {
+        // Repositories often see the same aggregate twice, when loading and when saving it
+        DomainEventRegistry.startTracking();
+        for (BenchmarkOrder order : orders) {
+            DomainEventRegistry.registerAggregateWithEvents(order);
+            DomainEventRegistry.registerAggregateWithEvents(order);
+        }
+        return DomainEventRegistry.getTrackedAggregatesAndStopTracking().size();
+    }
+
+    @Benchmark
+    public boolean registerWithoutTracking() {
+        for (BenchmarkOrder order : orders) {
+            DomainEventRegistry.registerAggregateWithEvents(order);
+        }
+        return DomainEventRegistry.isTrackingActive();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.ReflectionEventCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequential and parallel draining of large batches, to find the batch size from which
+ * {@link ReflectionEventCollector#setParallelCollectionThreshold(int)} pays off on the machine running it.
+ * <p>
+ * Compare the parallel and sequential scores of each batch size: the crossover is the smallest batch size
+ * for which parallel draining is faster, a sensible value for domain.events.parallel-collection-threshold.
+ */
+@State(Scope.Thread)
+public class ParallelCollectionBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int aggregates;
+
+    @Param({"1", "5"})
+    private int eventsPerAggregate;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private ReflectionEventCollectorBenchmark.CountingCollector collector;
+    private List<BenchmarkOrder> orders;
+
+    @Setup
+    public void setUp() {
+        collector = new ReflectionEventCollectorBenchmark.CountingCollector();
+        // A threshold of 1 drains every batch in parallel, 0 never does
+        collector.setParallelCollectionThreshold(parallel ? 1 : 0);
+        orders = new ArrayList<>(aggregates);
+        for (int i = 0; i < aggregates; i++) {
+            orders.add(new BenchmarkOrder(i));
+        }
+    }
+
+    @Benchmark
+    public long collectBatch() {
+        for (BenchmarkOrder order : orders) {
+            order.place(eventsPerAggregate);
+        }
+        collector.collectAndPublish(orders);
+        return collector.published;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.ReflectionEventCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collection and publication of the events of a single aggregate and of batches of aggregates,
+ * with a collector whose publication only counts the events.
+ * <p>
+ * Draining clears the aggregates, so each operation registers the events again: the registration is part
+ * of the measurement, as it is part of every real publication.
+ */
+@State(Scope.Thread)
+public class ReflectionEventCollectorBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int aggregates;
+
+    @Param({"1", "5"})
+    private int eventsPerAggregate;
+
+    @Param({"false", "true"})
+    private boolean coalescing;
+
+    private CountingCollector collector;
+    private List<BenchmarkOrder> orders;
+
+    @Setup
+    public void setUp() {
+        collector = new CountingCollector();
+        collector.setCoalescing(coalescing);
+        orders = new ArrayList<>(aggregates);
+        for (int i = 0; i < aggregates; i++) {
+            orders.add(new BenchmarkOrder(i));
+        }
+    }
+
+    @Benchmark
+    public long collectSingleAggregate() {
+        BenchmarkOrder order = orders.get(0);
+        order.place(eventsPerAggregate);
+        collector.collectAndPublish(order);
+        return collector.published;
+    }
+
+    @Benchmark
+    public long collectBatch() {
+        for (BenchmarkOrder order : orders) {
+            order.place(eventsPerAggregate);
+        }
+        collector.collectAndPublish(orders);
+        return collector.published;
+    }
+
+    static final class CountingCollector extends ReflectionEventCollector {
+
+        long published;
+
+        @Override
+        protected void publishEvents(List<Object> events) {
+            published += events.size();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ndogga.dddmolecules.benchmarks;
+
+import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.autoconfiguration.DomainEventPublishingAutoConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end publication through the {@link DomainEventCollector} configured by the starter, from the
+ * aggregate to `@EventListener` methods, for each delivery mode:
+ * - publisher: the application event publisher, the default
+ * - direct: the direct dispatch table, domain.events.dispatch-mode=direct
+ * - ring-buffer: hand-off to a dispatcher thread, domain.events.ring-buffer.enabled=true
+ */
+@State(Scope.Benchmark)
+public class SpringPublishingBenchmark {
+
+    @Param({"publisher", "direct", "ring-buffer"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private DomainEventCollector collector;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(properties())
+                .run();
+        collector = context.getBean(DomainEventCollector.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BenchmarkOrder publish(OrderState state) {
+        BenchmarkOrder order = new BenchmarkOrder(state.nextId++);
+        order.place(3);
+        collector.collectAndPublish(order);
+        return order;
+    }
+
+    private String[] properties() {
+        List<String> properties = switch (mode) {
+            case "direct" -> List.of("domain.events.dispatch-mode=direct");
+            case "ring-buffer" -> List.of("domain.events.ring-buffer.enabled=true");
+            default -> List.of();
+        };
+        return properties.toArray(String[]::new);
+    }
+
+    @State(Scope.Thread)
+    public static class OrderState {
+
+        long nextId;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration(DomainEventPublishingAutoConfiguration.class)
+    public static class BenchmarkConfiguration {
+
+        @Bean
+        OrderEventListener orderEventListener() {
+            return new OrderEventListener();
+        }
+    }
+
+    public static class OrderEventListener {
+
+        private final LongAdder received = new LongAdder();
+
+        @EventListener
+        public void on(BenchmarkOrder.Placed event) {
+            received.increment();
+        }
+
+        @EventListener
+        public void on(BenchmarkOrder.LineAdded event) {
+            received.increment();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link OutboxEventSerializer} storing domain events as JSON.
+ * Event classes are resolved from their stored name once and cached.
+ */
+public class JacksonOutboxEventSerializer implements OutboxEventSerializer {
+
+    private final ObjectMapper objectMapper;
+    private final ClassLoader classLoader;
+    private final Map<String, Class<?>> eventTypes = new ConcurrentHashMap<>();
+
+    public JacksonOutboxEventSerializer(ObjectMapper objectMapper) {
+        this(objectMapper, JacksonOutboxEventSerializer.class.getClassLoader());
+    }
+
+    public JacksonOutboxEventSerializer(ObjectMapper objectMapper, ClassLoader classLoader) {
+        this.objectMapper = objectMapper;
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public byte[] serialize(Object event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize domain event " + event.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(String eventType, byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, eventTypes.computeIfAbsent(eventType, this::loadEventType));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize domain event " + eventType, e);
+        }
+    }
+
+    private Class<?> loadEventType(String eventType) {
+        try {
+            return Class.forName(eventType, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Failed to load domain event type " + eventType, e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outbox table accessed through JDBC, see `com/ndogga/dddmolecules/outbox/schema.sql` for its layout.
+ * <p>
+ * Rows are written through the caller's connection, hence in the caller's transaction when one is active,
+ * so events are stored if and only if the aggregate changes are committed.
+ * <p>
+ * Each row carries a partition key derived from its aggregate type and stored id, and the partition number it
+ * maps to, so that each relay worker reads its partition through the (partition_number, id) index: events
+ * of one aggregate always land in the same partition, which lets several relay workers share the table
+ * without reordering them. When the partition count changes, the relay maps the stored events to the new
+ * partitions before relaying them, see {@link #repartition()}.
+ * <p>
+ * Events that keep failing are dead-lettered: they are moved out of every partition, to
+ * {@link #DEAD_LETTER_PARTITION}, and kept in the table with their last error for inspection.
+ */
+public class JdbcDomainEventOutbox {
+
+    /**
+     * Partition number of the dead-lettered events, never polled.
+     */
+    public static final int DEAD_LETTER_PARTITION = -1;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxEventSerializer serializer;
+    private final int partitionCount;
+    private final Clock clock;
+
+    private final String insertSql;
+    private final String selectSql;
+    private final String deleteSql;
+    private final String failureSql;
+    private final String deadLetterSql;
+    private final String repartitionSql;
+    private final String strayEntriesSql;
+
+    public JdbcDomainEventOutbox(JdbcTemplate jdbcTemplate, OutboxEventSerializer serializer, String tableName) {
+        this(jdbcTemplate, serializer, tableName, 1, Clock.systemUTC());
+    }
+
+    /**
+     * @param jdbcTemplate the template accessing the outbox table
+     * @param serializer the serializer of the stored events
+     * @param tableName the name of the outbox table
+     * @param partitionCount the number of partitions, one per relay worker
+     * @param clock the clock timestamping the stored events
+     */
+    public JdbcDomainEventOutbox(JdbcTemplate jdbcTemplate, OutboxEventSerializer serializer, String tableName,
+                                 int partitionCount, Clock clock) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Outbox partition count must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.serializer = serializer;
+        this.partitionCount = partitionCount;
+        this.clock = clock;
+        this.insertSql = "INSERT INTO " + tableName + " (partition_key, partition_number, aggregate_type, aggregate_id,"
+                + " event_type, payload, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        this.selectSql = "SELECT id, event_type, payload, attempts FROM " + tableName + " WHERE partition_number = ? ORDER BY id";
+        this.deleteSql = "DELETE FROM " + tableName + " WHERE id = ?";
+        this.failureSql = "UPDATE " + tableName + " SET attempts = attempts + 1, last_error = ? WHERE id = ?";
+        this.deadLetterSql = "UPDATE " + tableName + " SET attempts = attempts + 1, last_error = ?, partition_number = "
+                + DEAD_LETTER_PARTITION + " WHERE id = ?";
+        this.repartitionSql = "UPDATE " + tableName + " SET partition_number = MOD(partition_key, ?)"
+                + " WHERE partition_number >= 0 AND partition_number <> MOD(partition_key, ?)";
+        this.strayEntriesSql = "UPDATE " + tableName + " SET partition_number = MOD(partition_key, ?) WHERE partition_number >= ?";
+    }
+
+    /**
+     * Store the given events in a single JDBC batch.
+     * @param sources the aggregate each event was drained from, null if unknown
+     * @param events the events, in publication order
+     */
+    public void append(List<AggregateRoot<?>> sources, List<Object> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Timestamp createdAt = Timestamp.from(clock.instant());
+        jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AggregateRoot<?> source = sources.get(i);
+                Object event = events.get(i);
+                String aggregateType = source != null ? source.getClass().getName() : null;
+                Object id = source != null ? source.getId() : null;
+                String aggregateId = id != null ? id.toString() : null;
+                int partitionKey = partitionKey(aggregateType, aggregateId);
+
+                ps.setInt(1, partitionKey);
+                ps.setInt(2, partitionKey % partitionCount);
+                ps.setString(3, aggregateType);
+                ps.setString(4, aggregateId);
+                ps.setString(5, event.getClass().getName());
+                ps.setBytes(6, serializer.serialize(event));
+                ps.setTimestamp(7, createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    /**
+     * Fetch the oldest entries of a partition, in insertion order.
+     * @param partition the partition, between zero and the partition count
+     * @param limit the maximum number of entries
+     * @return the entries, possibly empty
+     */
+    public List<OutboxEntry> fetch(int partition, int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(selectSql);
+            ps.setInt(1, partition);
+            ps.setMaxRows(limit);
+            return ps;
+        }, (rs, rowNum) -> new OutboxEntry(rs.getLong(1), rs.getString(2), rs.getBytes(3), rs.getInt(4)));
+    }
+
+    /**
+     * Remove relayed entries in a single JDBC batch.
+     * @param ids the ids of the entries
+     */
+    public void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            args.add(new Object[]{id});
+        }
+        jdbcTemplate.batchUpdate(deleteSql, args);
+    }
+
+    /**
+     * Record a failed attempt to relay an entry, which stays in its partition to be retried.
+     * @param entry the entry
+     * @param error the failure
+     */
+    public void recordFailure(OutboxEntry entry, Exception error) {
+        jdbcTemplate.update(failureSql, describe(error), entry.id());
+    }
+
+    /**
+     * Record the last failed attempt to relay an entry and move it out of its partition, so that the events
+     * stored after it are relayed.
+     * @param entry the entry
+     * @param error the failure
+     */
+    public void deadLetter(OutboxEntry entry, Exception error) {
+        jdbcTemplate.update(deadLetterSql, describe(error), entry.id());
+    }
+
+    /**
+     * Map every stored event to its partition under the current partition count, e.g. after the number of
+     * relay workers changed. Events of one aggregate keep their id order within their new partition.
+     * Must run before the partitions are relayed, dead-lettered events are left out.
+     * @return the number of entries moved to another partition
+     */
+    public int repartition() {
+        return jdbcTemplate.update(repartitionSql, partitionCount, partitionCount);
+    }
+
+    /**
+     * Map the events stored beyond the last partition, e.g. by an instance still running with more relay
+     * workers during a rolling deploy, to their partition under the current partition count.
+     * Only reads the (partition_number, id) index when there is none.
+     * @return the number of entries moved to their partition
+     */
+    public int reassignStrayEntries() {
+        return jdbcTemplate.update(strayEntriesSql, partitionCount, partitionCount);
+    }
+
+    /**
+     * Rebuild the domain event of an entry.
+     * @param entry the entry
+     * @return the domain event
+     */
+    public Object deserialize(OutboxEntry entry) {
+        return serializer.deserialize(entry.eventType(), entry.payload());
+    }
+
+    /**
+     * Get the number of partitions the table is split into.
+     * @return the partition count, one per relay worker
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    private static String describe(Exception error) {
+        String description = error.toString();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+
+    // Hashes the stored id rather than the id object, whose hashCode may vary from one instance or run to the next
+    private static int partitionKey(String aggregateType, String aggregateId) {
+        return Objects.hash(aggregateType, aggregateId) & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+import com.ndogga.dddmolecules.DomainEventSink;
+import com.ndogga.dddmolecules.ReflectionEventCollector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DomainEventCollector writing domain events to a transactional outbox instead of publishing them.
+ * <p>
+ * The events of a collectAndPublish call are inserted in a single JDBC batch, in the same transaction
+ * as the aggregate changes, and relayed to their listeners by an {@link OutboxRelay} once committed.
+ * Delivery is at-least-once: listeners must tolerate receiving an event again after a relay failure.
+ * <p>
+ * The relay is woken up right after commit, so events are delivered without waiting for its next poll.
+ */
+@Slf4j
+public class OutboxDomainEventCollector extends ReflectionEventCollector {
+
+    private final JdbcDomainEventOutbox outbox;
+    private final OutboxRelay relay;
+
+    public OutboxDomainEventCollector(JdbcDomainEventOutbox outbox, OutboxRelay relay) {
+        this.outbox = outbox;
+        this.relay = relay;
+    }
+
+    @Override
+    protected DomainEventSink openEventSink() {
+        return new OutboxBuffer();
+    }
+
+    @Override
+    protected void publishEvents(List<Object> events) {
+        append(Collections.nCopies(events.size(), null), events);
+    }
+
+    private void append(List<AggregateRoot<?>> sources, List<Object> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        outbox.append(sources, events);
+        log.debug("Stored {} domain events in the outbox", events.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay.wakeUp();
+                }
+            });
+        } else {
+            relay.wakeUp();
+        }
+    }
+
+    /**
+     * Sink buffering drained events with their aggregate until the collectAndPublish call completes.
+     */
+    private final class OutboxBuffer implements DomainEventSink {
+
+        private final List<AggregateRoot<?>> sources = new ArrayList<>();
+        private final List<Object> events = new ArrayList<>();
+
+        @Override
+        public void accept(AggregateRoot<?> source, Object event) {
+            sources.add(source);
+            events.add(event);
+        }
+
+        @Override
+        public void complete() {
+            append(sources, events);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.ndogga.dddmolecules.outbox;
+
+/**
+ * A domain event stored in the outbox table, waiting to be relayed.
+ * @param id the row id, increasing in insertion order
+ * @param eventType the fully qualified class name of the event
+ * @param payload the serialized event
+ * @param attempts the number of failed attempts to relay the event so far
+ */
+public record OutboxEntry(long id, String eventType, byte[] payload, int attempts) {
+}
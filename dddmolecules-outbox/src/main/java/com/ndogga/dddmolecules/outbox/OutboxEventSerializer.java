@@ -0,0 +1,23 @@
+package com.ndogga.dddmolecules.outbox;
+
+/**
+ * Converts domain events to and from the payload stored in the outbox table.
+ */
+public interface OutboxEventSerializer {
+
+    /**
+     * Serialize a domain event.
+     * @param event the domain event
+     * @return the payload to store
+     */
+    byte[] serialize(Object event);
+
+    /**
+     * Rebuild a domain event from its stored payload.
+     * @param eventType the fully qualified class name of the event, as stored with the payload
+     * @param payload the stored payload
+     * @return the domain event
+     */
+    Object deserialize(String eventType, byte[] payload);
+
+}
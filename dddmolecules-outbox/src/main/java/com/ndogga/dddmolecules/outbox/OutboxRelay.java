@@ -0,0 +1,226 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.ndogga.dddmolecules.DomainEventDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Relays the domain events stored in the outbox to their listeners, then removes them.
+ * <p>
+ * The outbox table is split into as many partitions as there are workers, and each worker polls its own
+ * partition in id order. Since all the events of an aggregate share a partition, they are delivered in
+ * the order they were stored. When an event fails, the worker stops and retries from that event on its
+ * next poll, so later events of the same partition are never delivered ahead of it.
+ * <p>
+ * Failures are counted per event, whether its payload cannot be deserialized or a listener throws.
+ * An event failing the maximum number of attempts is dead-lettered, see
+ * {@link JdbcDomainEventOutbox#deadLetter(OutboxEntry, Exception)}, so that it no longer blocks its partition.
+ * <p>
+ * Workers are polled periodically and woken up after each commit, see {@link #wakeUp()}. On start, the stored
+ * events are mapped to the current partitions, and the first worker keeps picking up the events stored
+ * beyond the last partition by instances running with more workers, see {@link JdbcDomainEventOutbox#repartition()}.
+ * A single relay is expected per outbox table; running several application instances against the
+ * same table delivers events more than once.
+ */
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private final JdbcDomainEventOutbox outbox;
+    private final DomainEventDispatcher dispatcher;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final int maxAttempts;
+    private final List<Worker> workers = new ArrayList<>();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param outbox the outbox, one worker is started per partition
+     * @param dispatcher the dispatcher delivering the relayed events
+     * @param batchSize the maximum number of events relayed per query
+     * @param pollInterval the delay between two polls of a partition
+     * @param maxAttempts the number of failed attempts after which an event is dead-lettered
+     */
+    public OutboxRelay(JdbcDomainEventOutbox outbox, DomainEventDispatcher dispatcher, int batchSize, Duration pollInterval, int maxAttempts) {
+        if (batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Outbox batch size and max attempts must be positive");
+        }
+        this.outbox = outbox;
+        this.dispatcher = dispatcher;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxAttempts = maxAttempts;
+        for (int partition = 0; partition < outbox.getPartitionCount(); partition++) {
+            workers.add(new Worker(partition));
+        }
+    }
+
+    /**
+     * Ask every worker to poll its partition now, typically because new events were just committed.
+     */
+    public void wakeUp() {
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            return;
+        }
+        for (Worker worker : workers) {
+            if (worker.requestPoll()) {
+                current.execute(worker::poll);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        int repartitioned = outbox.repartition();
+        if (repartitioned > 0) {
+            log.info("Moved {} outbox entries to their partition among {}", repartitioned, workers.size());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(workers.size(), task -> {
+            Thread thread = new Thread(task, "domain-event-outbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Worker worker : workers) {
+            executor.scheduleWithFixedDelay(worker::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        scheduler = executor;
+        log.debug("Started outbox relay with {} workers", workers.size());
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = scheduler;
+        scheduler = null;
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(pollInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Polls one partition of the outbox table. Never runs concurrently with itself.
+     */
+    private final class Worker {
+
+        private final int partition;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+        Worker(int partition) {
+            this.partition = partition;
+        }
+
+        /**
+         * Request a poll, returning true if the worker is idle and has to be scheduled.
+         * A running worker polls again once its current poll completes.
+         */
+        boolean requestPoll() {
+            pollRequested.set(true);
+            return !running.get();
+        }
+
+        void poll() {
+            // Requests made while polling, even right before the running flag is cleared, trigger another pass
+            do {
+                if (!running.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    pollRequested.set(false);
+                    if (partition == 0) {
+                        reassignStrayEntries();
+                    }
+                    while (relayBatch()) {
+                        // A full batch was relayed, there may be more
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to relay domain events of outbox partition {}", partition, e);
+                } finally {
+                    running.set(false);
+                }
+            } while (pollRequested.get() && scheduler != null);
+        }
+
+        private void reassignStrayEntries() {
+            int reassigned = outbox.reassignStrayEntries();
+            if (reassigned > 0) {
+                log.warn("Moved {} outbox entries stored beyond the last of {} partitions, "
+                        + "domain.events.outbox.concurrency differs between instances", reassigned, workers.size());
+                // Other workers may own some of them
+                wakeUp();
+            }
+        }
+
+        /**
+         * Relay the oldest events of the partition.
+         * @return true if a full batch was relayed and more events may be waiting
+         */
+        private boolean relayBatch() {
+            List<OutboxEntry> entries = outbox.fetch(partition, batchSize);
+            List<Long> relayed = new ArrayList<>(entries.size());
+
+            for (OutboxEntry entry : entries) {
+                try {
+                    dispatcher.dispatch(outbox.deserialize(entry));
+                } catch (Exception e) {
+                    outbox.delete(relayed);
+                    return failed(entry, e);
+                }
+                relayed.add(entry.id());
+            }
+
+            if (relayed.isEmpty()) {
+                return false;
+            }
+
+            outbox.delete(relayed);
+            log.debug("Relayed {} domain events from outbox partition {}", relayed.size(), partition);
+            return entries.size() == batchSize && scheduler != null;
+        }
+
+        /**
+         * Record a failed event, dead-lettering it after the maximum number of attempts.
+         * @return true if the event was dead-lettered and the events stored after it may be relayed
+         */
+        private boolean failed(OutboxEntry entry, Exception error) {
+            if (entry.attempts() + 1 < maxAttempts) {
+                log.error("Failed to relay domain event {} (attempt {} of {}), retrying on next poll",
+                        entry.eventType(), entry.attempts() + 1, maxAttempts, error);
+                outbox.recordFailure(entry, error);
+                return false;
+            }
+
+            log.error("Failed to relay domain event {} after {} attempts, dead-lettering outbox entry {}",
+                    entry.eventType(), maxAttempts, entry.id(), error);
+            outbox.deadLetter(entry, error);
+            return scheduler != null;
+        }
+    }
+}
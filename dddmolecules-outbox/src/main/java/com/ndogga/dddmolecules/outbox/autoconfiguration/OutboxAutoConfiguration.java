@@ -0,0 +1,85 @@
+package com.ndogga.dddmolecules.outbox.autoconfiguration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.DomainEventDispatcher;
+import com.ndogga.dddmolecules.DomainEventMetrics;
+import com.ndogga.dddmolecules.InstrumentedDomainEventDispatcher;
+import com.ndogga.dddmolecules.autoconfiguration.DomainEventPublishingAutoConfiguration;
+import com.ndogga.dddmolecules.outbox.JacksonOutboxEventSerializer;
+import com.ndogga.dddmolecules.outbox.JdbcDomainEventOutbox;
+import com.ndogga.dddmolecules.outbox.OutboxDomainEventCollector;
+import com.ndogga.dddmolecules.outbox.OutboxEventSerializer;
+import com.ndogga.dddmolecules.outbox.OutboxRelay;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+
+/**
+ * Configuration storing domain events in a transactional outbox table.
+ * <p>
+ * This configuration:
+ * - Only activates when the application has a single DataSource
+ * - Only activates via property: domain.events.outbox.enabled=true
+ * - Replaces the default DomainEventCollector with an {@link OutboxDomainEventCollector}
+ * - Relays stored events to the configured DomainEventDispatcher, or the ApplicationEventPublisher
+ * - Creates the outbox table via property: domain.events.outbox.initialize-schema=true
+ */
+@AutoConfiguration(after = DataSourceAutoConfiguration.class, before = DomainEventPublishingAutoConfiguration.class)
+@ConditionalOnSingleCandidate(DataSource.class)
+@ConditionalOnProperty(prefix = "domain.events.outbox", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxAutoConfiguration {
+
+    private static final String DEFAULT_TABLE_NAME = "domain_event_outbox";
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxEventSerializer outboxEventSerializer(ObjectProvider<ObjectMapper> objectMapper) {
+        return new JacksonOutboxEventSerializer(objectMapper.getIfAvailable(ObjectMapper::new));
+    }
+
+    @Bean
+    public JdbcDomainEventOutbox domainEventOutbox(DataSource dataSource, OutboxEventSerializer serializer, OutboxProperties properties) {
+        if (properties.isInitializeSchema() && DEFAULT_TABLE_NAME.equals(properties.getTableName())) {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                    new ClassPathResource("com/ndogga/dddmolecules/outbox/schema.sql"));
+            populator.setContinueOnError(true);
+            DatabasePopulatorUtils.execute(populator, dataSource);
+        }
+        return new JdbcDomainEventOutbox(new JdbcTemplate(dataSource), serializer, properties.getTableName(),
+                properties.getConcurrency(), Clock.systemUTC());
+    }
+
+    @Bean
+    public OutboxRelay domainEventOutboxRelay(JdbcDomainEventOutbox outbox, OutboxProperties properties,
+                                              ApplicationEventPublisher aep, ObjectProvider<DomainEventDispatcher> dispatcher,
+                                              ObjectProvider<DomainEventMetrics> metrics) {
+        DomainEventDispatcher domainEventDispatcher = InstrumentedDomainEventDispatcher.instrument(
+                dispatcher.getIfAvailable(() -> aep::publishEvent), metrics.getIfAvailable(() -> DomainEventMetrics.NONE));
+        return new OutboxRelay(outbox, domainEventDispatcher,
+                properties.getBatchSize(), properties.getPollInterval(), properties.getMaxAttempts());
+    }
+
+    @Bean
+    public DomainEventCollector outboxDomainEventCollector(JdbcDomainEventOutbox outbox, OutboxRelay relay,
+                                                           ObjectProvider<DomainEventMetrics> metrics) {
+        OutboxDomainEventCollector collector = new OutboxDomainEventCollector(outbox, relay);
+        metrics.ifAvailable(collector::setMetrics);
+        return collector;
+    }
+
+}
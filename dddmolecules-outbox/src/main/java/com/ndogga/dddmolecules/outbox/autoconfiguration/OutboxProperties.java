@@ -0,0 +1,55 @@
+package com.ndogga.dddmolecules.outbox.autoconfiguration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the transactional outbox, bound under {@code domain.events.outbox}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "domain.events.outbox")
+public class OutboxProperties {
+
+    /**
+     * Store domain events in the outbox table instead of publishing them directly. This replaces the default
+     * collector, so its async, ring buffer and batch listener features are not used.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Name of the outbox table.
+     */
+    private String tableName = "domain_event_outbox";
+
+    /**
+     * Create the outbox table on startup from the bundled schema, meant for embedded H2 or HSQLDB databases.
+     * Only applies to the default table name.
+     */
+    private boolean initializeSchema = false;
+
+    /**
+     * Maximum number of events relayed per query.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Delay between two polls of the outbox table when no commit wakes the relay up.
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * Number of relay workers, each owning a partition of the outbox table.
+     * Stored events are moved to their new partition when the relay starts.
+     */
+    private int concurrency = 1;
+
+    /**
+     * Number of failed attempts to relay an event after which it is dead-lettered.
+     */
+    private int maxAttempts = 10;
+
+}
@@ -0,0 +1,18 @@
+-- Domain event outbox table, written as-is for H2 and HSQLDB.
+-- Other databases may need a different identity or binary column type.
+-- partition_number is partition_key modulo the number of relay workers, -1 once the event is dead-lettered.
+-- The relay recomputes it when the number of workers changes.
+CREATE TABLE domain_event_outbox (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    partition_key    INT           NOT NULL,
+    partition_number INT           NOT NULL,
+    aggregate_type   VARCHAR(255),
+    aggregate_id     VARCHAR(255),
+    event_type       VARCHAR(255)  NOT NULL,
+    payload          BLOB          NOT NULL,
+    created_at       TIMESTAMP     NOT NULL,
+    attempts         INT           DEFAULT 0 NOT NULL,
+    last_error       VARCHAR(1000)
+);
+
+CREATE INDEX domain_event_outbox_partition_idx ON domain_event_outbox (partition_number, id);
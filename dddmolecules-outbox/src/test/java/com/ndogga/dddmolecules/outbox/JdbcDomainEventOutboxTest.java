@@ -0,0 +1,244 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndogga.dddmolecules.AggregateRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcDomainEventOutboxTest {
+
+    private static final int PARTITIONS = 4;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcDomainEventOutbox outbox;
+
+    @BeforeEach
+    void createOutbox() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("com/ndogga/dddmolecules/outbox/schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        outbox = new JdbcDomainEventOutbox(jdbcTemplate, new JacksonOutboxEventSerializer(new ObjectMapper()),
+                "domain_event_outbox", PARTITIONS, Clock.systemUTC());
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void storesTheEventsOfAnAggregateInASinglePartitionInOrder() {
+        List<AggregateRoot<?>> sources = new ArrayList<>();
+        List<Object> events = new ArrayList<>();
+        for (int line = 0; line < 5; line++) {
+            for (long orderId = 0; orderId < 20; orderId++) {
+                sources.add(new TestOrder(orderId));
+                events.add(new TestOrder.LineAdded(orderId, "SKU-" + line));
+            }
+        }
+        outbox.append(sources, events);
+
+        Map<Long, Integer> partitions = new HashMap<>();
+        Map<Long, List<String>> lines = new HashMap<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            for (OutboxEntry entry : outbox.fetch(partition, 1000)) {
+                TestOrder.LineAdded event = (TestOrder.LineAdded) outbox.deserialize(entry);
+                Integer previousPartition = partitions.putIfAbsent(event.orderId(), partition);
+                assertEquals(partition, previousPartition != null ? previousPartition : partition);
+                lines.computeIfAbsent(event.orderId(), orderId -> new ArrayList<>()).add(event.sku());
+            }
+        }
+
+        assertEquals(20, lines.size());
+        lines.values().forEach(skus -> assertEquals(List.of("SKU-0", "SKU-1", "SKU-2", "SKU-3", "SKU-4"), skus));
+        assertTrue(partitions.values().stream().distinct().count() > 1, "Aggregates should be spread across partitions");
+    }
+
+    @Test
+    void fetchesAPartitionThroughTheIndex() {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id, event_type, payload, attempts FROM domain_event_outbox WHERE partition_number = 0 ORDER BY id",
+                String.class);
+
+        assertTrue(plan.toUpperCase().contains("DOMAIN_EVENT_OUTBOX_PARTITION_IDX"), plan);
+    }
+
+    @Test
+    void fetchesAtMostTheLimit() {
+        appendLines(new TestOrder(1), 10);
+
+        int partition = partitionOf(1);
+        assertEquals(3, outbox.fetch(partition, 3).size());
+        assertEquals(10, outbox.fetch(partition, 100).size());
+    }
+
+    @Test
+    void deletesRelayedEntries() {
+        appendLines(new TestOrder(1), 3);
+        int partition = partitionOf(1);
+        List<OutboxEntry> entries = outbox.fetch(partition, 100);
+
+        outbox.delete(List.of(entries.get(0).id(), entries.get(1).id()));
+
+        List<OutboxEntry> remaining = outbox.fetch(partition, 100);
+        assertEquals(1, remaining.size());
+        assertEquals(entries.get(2).id(), remaining.get(0).id());
+    }
+
+    @Test
+    void countsFailedAttemptsAndDeadLettersEntries() {
+        appendLines(new TestOrder(1), 2);
+        int partition = partitionOf(1);
+        OutboxEntry first = outbox.fetch(partition, 100).get(0);
+
+        outbox.recordFailure(first, new IllegalStateException("listener failed"));
+        List<OutboxEntry> entries = outbox.fetch(partition, 100);
+        assertEquals(first.id(), entries.get(0).id());
+        assertEquals(1, entries.get(0).attempts());
+
+        outbox.deadLetter(entries.get(0), new IllegalStateException("listener failed again"));
+        entries = outbox.fetch(partition, 100);
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).id() > first.id());
+
+        Map<String, Object> deadLetter = jdbcTemplate.queryForMap(
+                "SELECT partition_number, attempts, last_error FROM domain_event_outbox WHERE id = ?", first.id());
+        assertEquals(JdbcDomainEventOutbox.DEAD_LETTER_PARTITION, ((Number) deadLetter.get("PARTITION_NUMBER")).intValue());
+        assertEquals(2, ((Number) deadLetter.get("ATTEMPTS")).intValue());
+        assertTrue(deadLetter.get("LAST_ERROR").toString().contains("listener failed again"));
+    }
+
+    @Test
+    void repartitionsStoredEventsWhenThePartitionCountChanges() {
+        for (long orderId = 0; orderId < 20; orderId++) {
+            appendLines(new TestOrder(orderId), 3);
+        }
+        OutboxEntry deadLettered = outbox.fetch(partitionOf(7), 1000).stream()
+                .filter(entry -> ((TestOrder.LineAdded) outbox.deserialize(entry)).orderId() == 7)
+                .findFirst().orElseThrow();
+        outbox.deadLetter(deadLettered, new IllegalStateException("listener failed"));
+
+        JdbcDomainEventOutbox resized = new JdbcDomainEventOutbox(jdbcTemplate, new JacksonOutboxEventSerializer(new ObjectMapper()),
+                "domain_event_outbox", 3, Clock.systemUTC());
+        assertTrue(resized.repartition() > 0);
+        assertEquals(0, resized.repartition());
+
+        Map<Long, List<String>> lines = new HashMap<>();
+        for (int partition = 0; partition < 3; partition++) {
+            Map<Long, List<String>> partitionLines = new HashMap<>();
+            for (OutboxEntry entry : resized.fetch(partition, 1000)) {
+                TestOrder.LineAdded event = (TestOrder.LineAdded) resized.deserialize(entry);
+                partitionLines.computeIfAbsent(event.orderId(), orderId -> new ArrayList<>()).add(event.sku());
+            }
+            partitionLines.forEach((orderId, skus) -> assertNull(lines.put(orderId, skus), "Order " + orderId + " spans partitions"));
+        }
+
+        assertEquals(20, lines.size());
+        assertEquals(List.of("SKU-1", "SKU-2"), lines.get(7L));
+        lines.forEach((orderId, skus) -> {
+            if (orderId != 7) {
+                assertEquals(List.of("SKU-0", "SKU-1", "SKU-2"), skus);
+            }
+        });
+        assertEquals(JdbcDomainEventOutbox.DEAD_LETTER_PARTITION, jdbcTemplate.queryForObject(
+                "SELECT partition_number FROM domain_event_outbox WHERE id = ?", Integer.class, deadLettered.id()).intValue());
+    }
+
+    @Test
+    void reassignsOnlyTheEntriesStoredBeyondTheLastPartition() {
+        for (long orderId = 0; orderId < 20; orderId++) {
+            appendLines(new TestOrder(orderId), 2);
+        }
+        int stray = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM domain_event_outbox WHERE partition_number >= 2", Integer.class);
+        int kept = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM domain_event_outbox WHERE partition_number < 2", Integer.class);
+
+        JdbcDomainEventOutbox resized = new JdbcDomainEventOutbox(jdbcTemplate, new JacksonOutboxEventSerializer(new ObjectMapper()),
+                "domain_event_outbox", 2, Clock.systemUTC());
+
+        assertTrue(stray > 0);
+        assertEquals(stray, resized.reassignStrayEntries());
+        assertEquals(kept + stray, resized.fetch(0, 1000).size() + resized.fetch(1, 1000).size());
+    }
+
+    @Test
+    void partitionsAggregatesByTheirStoredId() {
+        // The id type keeps the identity hash code, only its string form identifies the aggregate
+        appendLines(new NumberedOrder(new OrderNumber("A-1")), 1);
+        appendLines(new NumberedOrder(new OrderNumber("A-1")), 1);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT partition_key) FROM domain_event_outbox WHERE aggregate_id = 'A-1'", Integer.class).intValue());
+    }
+
+    private void appendLines(NumberedOrder order, int count) {
+        List<AggregateRoot<?>> sources = new ArrayList<>();
+        List<Object> events = new ArrayList<>();
+        for (int line = 0; line < count; line++) {
+            sources.add(order);
+            events.add(new TestOrder.LineAdded(line, "SKU-" + line));
+        }
+        outbox.append(sources, events);
+    }
+
+    private void appendLines(TestOrder order, int count) {
+        List<AggregateRoot<?>> sources = new ArrayList<>();
+        List<Object> events = new ArrayList<>();
+        for (int line = 0; line < count; line++) {
+            sources.add(order);
+            events.add(new TestOrder.LineAdded(order.getId(), "SKU-" + line));
+        }
+        outbox.append(sources, events);
+    }
+
+    static class OrderNumber {
+
+        private final String value;
+
+        OrderNumber(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    static class NumberedOrder extends AggregateRoot<OrderNumber> {
+
+        private final OrderNumber id;
+
+        NumberedOrder(OrderNumber id) {
+            this.id = id;
+        }
+
+        @Override
+        public OrderNumber getId() {
+            return id;
+        }
+    }
+
+    private int partitionOf(long orderId) {
+        return jdbcTemplate.queryForObject("SELECT DISTINCT partition_number FROM domain_event_outbox WHERE aggregate_id = ?",
+                Integer.class, Long.toString(orderId));
+    }
+}
@@ -0,0 +1,182 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndogga.dddmolecules.AggregateRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboxRelayTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JdbcDomainEventOutbox outbox;
+
+    private final List<Object> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresToInject = new AtomicInteger();
+
+    private OutboxRelay relay;
+    private OutboxDomainEventCollector collector;
+
+    @BeforeEach
+    void createOutbox() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("com/ndogga/dddmolecules/outbox/schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        outbox = new JdbcDomainEventOutbox(jdbcTemplate, new JacksonOutboxEventSerializer(new ObjectMapper()),
+                "domain_event_outbox", 2, Clock.systemUTC());
+        relay = new OutboxRelay(outbox, event -> {
+            if (failuresToInject.getAndUpdate(failures -> Math.max(0, failures - 1)) > 0) {
+                throw new IllegalStateException("Injected listener failure");
+            }
+            received.add(event);
+        }, 10, Duration.ofMillis(20), MAX_ATTEMPTS);
+        collector = new OutboxDomainEventCollector(outbox, relay);
+    }
+
+    @AfterEach
+    void stopRelay() {
+        relay.stop();
+        database.shutdown();
+    }
+
+    @Test
+    void storesEventsOnlyWhenTheTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> publishLines(new TestOrder(1), 2));
+        transactionTemplate.executeWithoutResult(status -> {
+            publishLines(new TestOrder(2), 2);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of("1", "1"), jdbcTemplate.queryForList("SELECT aggregate_id FROM domain_event_outbox ORDER BY id", String.class));
+    }
+
+    @Test
+    void relaysCommittedEventsInOrderPerAggregate() {
+        relay.start();
+        for (long orderId = 0; orderId < 10; orderId++) {
+            TestOrder order = new TestOrder(orderId);
+            transactionTemplate.executeWithoutResult(status -> publishLines(order, 25));
+        }
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 250);
+
+        Map<Long, List<String>> lines = received.stream()
+                .map(TestOrder.LineAdded.class::cast)
+                .collect(Collectors.groupingBy(TestOrder.LineAdded::orderId,
+                        Collectors.mapping(TestOrder.LineAdded::sku, Collectors.toList())));
+        List<String> expected = new ArrayList<>();
+        for (int line = 0; line < 25; line++) {
+            expected.add("SKU-" + line);
+        }
+        lines.values().forEach(skus -> assertEquals(expected, skus));
+        await().atMost(Duration.ofSeconds(5)).until(() -> rowCount() == 0);
+    }
+
+    @Test
+    void retriesEventsWhoseListenerFailed() {
+        failuresToInject.set(MAX_ATTEMPTS - 1);
+        relay.start();
+        transactionTemplate.executeWithoutResult(status -> publishLines(new TestOrder(1), 3));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == 3);
+
+        assertEquals(List.of(new TestOrder.LineAdded(1, "SKU-0"), new TestOrder.LineAdded(1, "SKU-1"),
+                new TestOrder.LineAdded(1, "SKU-2")), received);
+        await().atMost(Duration.ofSeconds(5)).until(() -> rowCount() == 0);
+    }
+
+    @Test
+    void deadLettersEventsThatCannotBeDeserialized() {
+        TestOrder order = new TestOrder(1);
+        transactionTemplate.executeWithoutResult(status -> publishLines(order, 1));
+        Map<String, Object> stored = jdbcTemplate.queryForMap("SELECT partition_key, partition_number FROM domain_event_outbox");
+        // A payload stored by an incompatible version of the event, ahead of a valid one in the same partition
+        jdbcTemplate.update("UPDATE domain_event_outbox SET payload = ?", (Object) "{\"orderId\": \"not a number\"}".getBytes());
+        jdbcTemplate.update("INSERT INTO domain_event_outbox (partition_key, partition_number, aggregate_type, aggregate_id,"
+                        + " event_type, payload, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                stored.get("PARTITION_KEY"), stored.get("PARTITION_NUMBER"), TestOrder.class.getName(), "1",
+                TestOrder.LineAdded.class.getName(), "{\"orderId\": 1, \"sku\": \"SKU-1\"}".getBytes(), Timestamp.from(Instant.now()));
+
+        relay.start();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == 1);
+        assertEquals(List.of(new TestOrder.LineAdded(1, "SKU-1")), received);
+
+        Map<String, Object> deadLetter = jdbcTemplate.queryForMap("SELECT partition_number, attempts FROM domain_event_outbox");
+        assertEquals(JdbcDomainEventOutbox.DEAD_LETTER_PARTITION, ((Number) deadLetter.get("PARTITION_NUMBER")).intValue());
+        assertEquals(MAX_ATTEMPTS, ((Number) deadLetter.get("ATTEMPTS")).intValue());
+    }
+
+    @Test
+    void relaysEventsStoredWithMorePartitions() {
+        // Stored by an instance running more relay workers, partitions 2 and 3 have no worker here
+        JdbcDomainEventOutbox wider = new JdbcDomainEventOutbox(jdbcTemplate, new JacksonOutboxEventSerializer(new ObjectMapper()),
+                "domain_event_outbox", 4, Clock.systemUTC());
+        for (long orderId = 0; orderId < 8; orderId++) {
+            TestOrder order = new TestOrder(orderId);
+            List<AggregateRoot<?>> sources = new ArrayList<>();
+            List<Object> events = new ArrayList<>();
+            for (int line = 0; line < 5; line++) {
+                sources.add(order);
+                events.add(new TestOrder.LineAdded(orderId, "SKU-" + line));
+            }
+            wider.append(sources, events);
+        }
+
+        relay.start();
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 40);
+        Map<Long, List<String>> lines = received.stream()
+                .map(TestOrder.LineAdded.class::cast)
+                .collect(Collectors.groupingBy(TestOrder.LineAdded::orderId,
+                        Collectors.mapping(TestOrder.LineAdded::sku, Collectors.toList())));
+        lines.values().forEach(skus -> assertEquals(List.of("SKU-0", "SKU-1", "SKU-2", "SKU-3", "SKU-4"), skus));
+        await().atMost(Duration.ofSeconds(5)).until(() -> rowCount() == 0);
+
+        // Stored after the relay started, by an instance not restarted yet
+        for (long orderId = 100; orderId < 110; orderId++) {
+            wider.append(List.of(new TestOrder(orderId)), List.of(new TestOrder.LineAdded(orderId, "SKU-0")));
+        }
+        relay.wakeUp();
+        await().atMost(Duration.ofSeconds(5)).until(() -> received.size() == 50);
+    }
+
+    private void publishLines(TestOrder order, int count) {
+        for (int line = 0; line < count; line++) {
+            order.addLine("SKU-" + line);
+        }
+        collector.collectAndPublish(order);
+    }
+
+    private int rowCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM domain_event_outbox", Integer.class);
+    }
+}
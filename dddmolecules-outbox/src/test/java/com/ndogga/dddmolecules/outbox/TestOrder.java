@@ -0,0 +1,27 @@
+package com.ndogga.dddmolecules.outbox;
+
+import com.ndogga.dddmolecules.AggregateRoot;
+
+/**
+ * Aggregate used by the outbox tests.
+ */
+public class TestOrder extends AggregateRoot<Long> {
+
+    private final long id;
+
+    public TestOrder(long id) {
+        this.id = id;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void addLine(String sku) {
+        registerEvent(new LineAdded(id, sku));
+    }
+
+    public record LineAdded(long orderId, String sku) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.ndogga.dddmolecules.outbox.autoconfiguration;
+
+import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.SpringDomainEventCollector;
+import com.ndogga.dddmolecules.autoconfiguration.DomainEventPublishingAutoConfiguration;
+import com.ndogga.dddmolecules.outbox.OutboxDomainEventCollector;
+import com.ndogga.dddmolecules.outbox.OutboxRelay;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, OutboxAutoConfiguration.class,
+                    DomainEventPublishingAutoConfiguration.class))
+            .withPropertyValues("spring.datasource.generate-unique-name=true");
+
+    @Test
+    void keepsTheDefaultCollectorUnlessEnabled() {
+        contextRunner.run(context -> {
+            assertInstanceOf(SpringDomainEventCollector.class, context.getBean(DomainEventCollector.class));
+            assertTrue(context.getBeansOfType(OutboxRelay.class).isEmpty());
+        });
+    }
+
+    @Test
+    void replacesTheCollectorWhenEnabled() {
+        contextRunner.withPropertyValues("domain.events.outbox.enabled=true", "domain.events.outbox.initialize-schema=true")
+                .run(context -> {
+                    assertInstanceOf(OutboxDomainEventCollector.class, context.getBean(DomainEventCollector.class));
+                    assertInstanceOf(OutboxRelay.class, context.getBean(OutboxRelay.class));
+                });
+    }
+}
@@ -0,0 +1,256 @@
+package com.ndogga.dddmolecules.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor that generates a {@code DomainEventAccessor} for every concrete class
+ * exposing `@DomainEvents` or `@AfterDomainEventPublication` methods, including inherited ones
+ * such as those of {@code AggregateRoot}.
+ * <p>
+ * The generated accessors call the annotated methods directly and are listed in
+ * `META-INF/services/com.ndogga.dddmolecules.DomainEventAccessor`, which the runtime loads
+ * instead of resolving the methods through reflection.
+ * <p>
+ * Classes that cannot be accessed from their own package (private nested classes) are skipped
+ * and keep using the reflective accessor.
+ */
+@SupportedAnnotationTypes("*")
+public class DomainEventAccessorProcessor extends AbstractProcessor {
+
+    static final String DOMAIN_EVENTS = "com.ndogga.dddmolecules.DomainEvents";
+    static final String AFTER_DOMAIN_EVENT_PUBLICATION = "com.ndogga.dddmolecules.AfterDomainEventPublication";
+    static final String AGGREGATE_ROOT = "com.ndogga.dddmolecules.AggregateRoot";
+    static final String ACCESSOR_INTERFACE = "com.ndogga.dddmolecules.DomainEventAccessor";
+    static final String ACCESSOR_SUFFIX = "_DomainEventAccessor";
+
+    private final Set<String> generatedAccessors = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(type);
+        }
+
+        // Never claim annotations, other processors (Lombok, ...) must still see them
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processType(nested);
+        }
+
+        if (!isAccessibleConcreteClass(type)) {
+            return;
+        }
+
+        List<ExecutableElement> domainEventMethods = new ArrayList<>();
+        List<ExecutableElement> afterPublicationMethods = new ArrayList<>();
+
+        // Mirrors Class#getMethods(): public methods, declared or inherited, overridden ones excluded
+        Elements elements = processingEnv.getElementUtils();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            boolean domainEvents = hasAnnotation(method, DOMAIN_EVENTS);
+            boolean afterPublication = hasAnnotation(method, AFTER_DOMAIN_EVENT_PUBLICATION);
+            if ((domainEvents || afterPublication) && !method.getParameters().isEmpty()) {
+                error(type, "Domain event method " + method + " of " + type.getQualifiedName() + " must not declare parameters");
+                return;
+            }
+            if (domainEvents) {
+                domainEventMethods.add(method);
+            }
+            if (afterPublication) {
+                afterPublicationMethods.add(method);
+            }
+        }
+
+        if (domainEventMethods.isEmpty() && afterPublicationMethods.isEmpty()) {
+            return;
+        }
+
+        generateAccessor(type, domainEventMethods, afterPublicationMethods);
+    }
+
+    private void generateAccessor(TypeElement type, List<ExecutableElement> domainEventMethods, List<ExecutableElement> afterPublicationMethods) {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String accessorName = accessorSimpleName(type);
+        String qualifiedAccessorName = packageName.isEmpty() ? accessorName : packageName + "." + accessorName;
+        String aggregateType = type.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        source.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+        source.append("public final class ").append(accessorName)
+                .append(" implements ").append(ACCESSOR_INTERFACE).append("<").append(aggregateType).append("> {\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public Class<").append(aggregateType).append("> aggregateType() {\n");
+        source.append("        return ").append(aggregateType).append(".class;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public void collectDomainEvents(").append(aggregateType)
+                .append(" aggregate, java.util.function.Consumer<Object> sink) {\n");
+        for (int i = 0; i < domainEventMethods.size(); i++) {
+            ExecutableElement method = domainEventMethods.get(i);
+            String events = "events" + i;
+            if (method.getReturnType().getKind() == TypeKind.VOID) {
+                source.append("        ").append(invocation(method)).append(";\n");
+                continue;
+            }
+            source.append("        Object ").append(events).append(" = ").append(invocation(method)).append(";\n");
+            source.append("        if (").append(events).append(" instanceof java.util.Collection) {\n");
+            source.append("            ((java.util.Collection<?>) ").append(events).append(").forEach(sink);\n");
+            source.append("        } else if (").append(events).append(" != null) {\n");
+            source.append("            sink.accept(").append(events).append(");\n");
+            source.append("        }\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public void afterDomainEventPublication(").append(aggregateType).append(" aggregate) {\n");
+        for (ExecutableElement method : afterPublicationMethods) {
+            source.append("        ").append(invocation(method)).append(";\n");
+        }
+        source.append("    }\n");
+
+        if (usesAggregateRootBuffer(domainEventMethods, afterPublicationMethods)) {
+            source.append("\n");
+            source.append("    @Override\n");
+            source.append("    public void drainDomainEvents(").append(aggregateType)
+                    .append(" aggregate, java.util.function.Consumer<Object> sink) {\n");
+            source.append("        aggregate.drainDomainEvents(sink);\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedAccessorName, type).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(type, "Failed to generate domain event accessor for " + aggregateType + ": " + e.getMessage());
+            return;
+        }
+
+        generatedAccessors.add(qualifiedAccessorName);
+    }
+
+    private void writeIndex() {
+        if (generatedAccessors.isEmpty()) {
+            return;
+        }
+
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + ACCESSOR_INTERFACE);
+            try (Writer writer = index.openWriter()) {
+                for (String accessor : generatedAccessors) {
+                    writer.write(accessor);
+                    writer.write("\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write domain event accessor index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the only annotated methods are the ones declared by {@code AggregateRoot}, in which case
+     * its buffer can be drained in one step instead of collecting then clearing.
+     */
+    private static boolean usesAggregateRootBuffer(List<ExecutableElement> domainEventMethods, List<ExecutableElement> afterPublicationMethods) {
+        return domainEventMethods.size() == 1 && afterPublicationMethods.size() == 1
+                && isDeclaredByAggregateRoot(domainEventMethods.get(0))
+                && isDeclaredByAggregateRoot(afterPublicationMethods.get(0));
+    }
+
+    private static boolean isDeclaredByAggregateRoot(ExecutableElement method) {
+        return ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals(AGGREGATE_ROOT);
+    }
+
+    private static String invocation(ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            TypeElement owner = (TypeElement) method.getEnclosingElement();
+            return owner.getQualifiedName() + "." + method.getSimpleName() + "()";
+        }
+        return "aggregate." + method.getSimpleName() + "()";
+    }
+
+    private static boolean isAccessibleConcreteClass(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        Element element = type;
+        while (!(element instanceof PackageElement)) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static String accessorSimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement enclosingType) {
+            name.insert(0, enclosingType.getSimpleName() + "_");
+            enclosing = enclosingType.getEnclosingElement();
+        }
+        return name.append(ACCESSOR_SUFFIX).toString();
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationType) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(mirror -> ((TypeElement) mirror.getAnnotationType().asElement())
+                        .getQualifiedName().contentEquals(annotationType));
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
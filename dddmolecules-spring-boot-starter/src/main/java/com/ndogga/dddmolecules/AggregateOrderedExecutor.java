@@ -0,0 +1,158 @@
+package com.ndogga.dddmolecules;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks asynchronously while keeping tasks of the same key, i.e. of the same aggregate, in submission order.
+ * <p>
+ * Each key with pending tasks has a lane: new tasks are chained after the lane's last task, so tasks of
+ * one aggregate never overlap or reorder, while tasks of different aggregates run fully in parallel.
+ * A lane is removed as soon as its last task completes. Tasks without a key are not ordered.
+ * <p>
+ * Task failures are logged and never break the lane.
+ * <p>
+ * The number of pending tasks can be bounded: {@link #execute(Object, Runnable)} then waits for a task to
+ * complete while {@link #tryExecute(Object, Runnable)} refuses the task, so the caller can apply its own
+ * overflow policy.
+ * <p>
+ * A task submitting more tasks, e.g. a listener raising events of its own, may hold the permit it waits for.
+ * Tasks submitted from a running task of this executor therefore never wait: when the executor is full, they are
+ * queued beyond the bound, still in the order of their key.
+ */
+@Slf4j
+public class AggregateOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final ConcurrentMap<Object, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final ThreadLocal<Boolean> runningTask = new ThreadLocal<>();
+
+    public AggregateOrderedExecutor(ExecutorService executor) {
+        this(executor, 0);
+    }
+
+    /**
+     * @param executor the executor running the tasks
+     * @param capacity the maximum number of pending tasks, zero or less for no bound
+     */
+    public AggregateOrderedExecutor(ExecutorService executor, int capacity) {
+        this.executor = executor;
+        this.permits = capacity > 0 ? new Semaphore(capacity) : null;
+    }
+
+    /**
+     * Create an executor running every task on its own virtual thread.
+     * @return the executor
+     */
+    public static AggregateOrderedExecutor virtualThreads() {
+        return virtualThreads(0);
+    }
+
+    /**
+     * Create an executor running every task on its own virtual thread, with a bounded number of pending tasks.
+     * @param capacity the maximum number of pending tasks, zero or less for no bound
+     * @return the executor
+     */
+    public static AggregateOrderedExecutor virtualThreads(int capacity) {
+        return new AggregateOrderedExecutor(Executors.newVirtualThreadPerTaskExecutor(), capacity);
+    }
+
+    /**
+     * Run the task after every task previously submitted with the same key,
+     * waiting for a pending task to complete if the executor is full, unless called from a task of this executor.
+     * @param key the ordering key, null if the task does not need to be ordered
+     * @param task the task to run
+     */
+    public void execute(Object key, Runnable task) {
+        boolean permitted = permits != null;
+        if (permitted && !permits.tryAcquire()) {
+            if (runningTask.get() != null) {
+                // Waiting could block on the permit held by the current task
+                permitted = false;
+            } else {
+                permits.acquireUninterruptibly();
+            }
+        }
+        submit(key, task, permitted);
+    }
+
+    /**
+     * Run the task after every task previously submitted with the same key, unless the executor is full.
+     * @param key the ordering key, null if the task does not need to be ordered
+     * @param task the task to run
+     * @return true if the task was accepted, false if the executor is full
+     */
+    public boolean tryExecute(Object key, Runnable task) {
+        if (permits != null && !permits.tryAcquire()) {
+            return false;
+        }
+        submit(key, task, permits != null);
+        return true;
+    }
+
+    private void submit(Object key, Runnable task, boolean permitted) {
+        pendingTasks.incrementAndGet();
+        Runnable guardedTask = () -> {
+            runningTask.set(Boolean.TRUE);
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Asynchronous domain event task failed for key {}", key, e);
+            } finally {
+                runningTask.remove();
+                if (permitted) {
+                    permits.release();
+                }
+                pendingTasks.decrementAndGet();
+            }
+        };
+
+        if (key == null) {
+            executor.execute(guardedTask);
+            return;
+        }
+
+        CompletableFuture<Void> lane = lanes.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(guardedTask, executor)
+                : tail.thenRunAsync(guardedTask, executor));
+        lane.whenComplete((result, error) -> lanes.remove(key, lane));
+    }
+
+    /**
+     * Get the number of tasks submitted and not yet completed.
+     * @return the number of pending tasks
+     */
+    public int getPendingTasks() {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Get the number of keys with pending tasks.
+     * @return the number of active lanes
+     */
+    public int getActiveLanes() {
+        return lanes.size();
+    }
+
+    /**
+     * Stop accepting tasks and wait for the pending ones to complete.
+     */
+    @Override
+    public void close() {
+        // Wait for the lanes first, their chained tasks are only handed to the executor once the previous one completes
+        CompletableFuture<?>[] pending;
+        while ((pending = lanes.values().toArray(CompletableFuture[]::new)).length > 0) {
+            CompletableFuture.allOf(pending).exceptionally(error -> null).join();
+        }
+        executor.close();
+    }
+}
@@ -0,0 +1,268 @@
+package com.ndogga.dddmolecules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.framework.autoproxy.AutoProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.ApplicationListenerMethodAdapter;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.event.GenericApplicationListener;
+import org.springframework.context.event.GenericApplicationListenerAdapter;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DomainEventDispatcher} that calls `@EventListener` methods directly through a dispatch table
+ * built when the application context is refreshed, bypassing Spring's event multicaster.
+ * <p>
+ * On refresh, every singleton bean is scanned once for plain `@EventListener` methods and each is bound
+ * to its bean as a {@link MethodHandle}. The listeners of a domain event type are then resolved once,
+ * on the first event of that type, and kept per type; dispatching an event is a table lookup followed
+ * by direct calls, without {@link ResolvableType} resolution or listener cache lookups.
+ * <p>
+ * Only listeners whose semantics are fully preserved by a direct call are put in the table: a single
+ * non-generic parameter, no condition or {@code classes} attribute, a void return type, no {@code @Async}
+ * or {@code @TransactionalEventListener}. Event types that any other listener may receive, including
+ * plain {@link ApplicationListener} beans, keep going through the {@link ApplicationEventPublisher}.
+ * So do events dispatched before the context has been refreshed.
+ * <p>
+ * Plain listeners declared for every {@link ApplicationEvent}, such as Spring Boot's
+ * {@code DelegatingApplicationListener}, are not taken into account: they are infrastructure relaying
+ * application events, they would otherwise send every domain event through the publisher. Such listeners
+ * do not receive the domain events dispatched directly; declare them for {@link PayloadApplicationEvent},
+ * or as a {@link GenericApplicationListener}, to keep receiving them.
+ */
+@Slf4j
+public class DirectDomainEventDispatcher implements DomainEventDispatcher, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private static final ListenerInvoker[] PUBLISHER_FALLBACK = new ListenerInvoker[0];
+
+    private final ApplicationContext applicationContext;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private volatile DispatchTable dispatchTable;
+
+    public DirectDomainEventDispatcher(ApplicationContext applicationContext, ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationContext = applicationContext;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public void dispatch(Object event) {
+        DispatchTable table = dispatchTable;
+        ListenerInvoker[] invokers = table != null ? table.invokers.get(event.getClass()) : PUBLISHER_FALLBACK;
+
+        if (invokers == PUBLISHER_FALLBACK) {
+            applicationEventPublisher.publishEvent(event);
+            return;
+        }
+
+        for (ListenerInvoker invoker : invokers) {
+            invoker.invoke(event);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // Refresh events of child contexts are propagated to their parents, ignore them
+        if (event.getApplicationContext() != applicationContext) {
+            return;
+        }
+        dispatchTable = buildDispatchTable();
+    }
+
+    private DispatchTable buildDispatchTable() {
+        ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) applicationContext).getBeanFactory();
+        List<ListenerInvoker> listeners = new ArrayList<>();
+        List<Class<?>> publisherEventTypes = new ArrayList<>();
+
+        for (String beanName : beanFactory.getBeanNamesForType(Object.class, true, false)) {
+            Class<?> targetType = AutoProxyUtils.determineTargetClass(beanFactory, beanName);
+            if (targetType == null) {
+                continue;
+            }
+
+            Map<Method, EventListener> eventListenerMethods = MethodIntrospector.selectMethods(targetType,
+                    (MethodIntrospector.MetadataLookup<EventListener>) method ->
+                            AnnotatedElementUtils.findMergedAnnotation(method, EventListener.class));
+
+            for (Map.Entry<Method, EventListener> entry : eventListenerMethods.entrySet()) {
+                Method method = entry.getKey();
+                if (isDirectlyInvocable(method, entry.getValue()) && beanFactory.isSingleton(beanName)) {
+                    listeners.add(bind(beanName, method));
+                } else {
+                    publisherEventTypes.addAll(listenedTypes(method, entry.getValue()));
+                }
+            }
+        }
+
+        // Stable sort, listeners with the same order keep their registration order as with the multicaster
+        listeners.sort(Comparator.comparingInt(ListenerInvoker::order));
+
+        log.debug("Built domain event dispatch table with {} direct listeners", listeners.size());
+        return new DispatchTable(listeners, publisherEventTypes, otherApplicationListeners(beanFactory));
+    }
+
+    private List<ApplicationListener<?>> otherApplicationListeners(ConfigurableListableBeanFactory beanFactory) {
+        List<ApplicationListener<?>> listeners = new ArrayList<>();
+        if (applicationContext instanceof AbstractApplicationContext context) {
+            listeners.addAll(context.getApplicationListeners());
+        }
+        for (ApplicationListener<?> listener : beanFactory.getBeansOfType(ApplicationListener.class, false, false).values()) {
+            listeners.add(listener);
+        }
+
+        // Adapters of @EventListener methods are already covered by the scan
+        listeners.removeIf(listener -> listener instanceof ApplicationListenerMethodAdapter || listener == this
+                || listensToEveryApplicationEvent(listener));
+        return listeners;
+    }
+
+    private static boolean listensToEveryApplicationEvent(ApplicationListener<?> listener) {
+        // Generic and smart listeners state what they support, they are asked on resolution
+        if (listener instanceof GenericApplicationListener || listener instanceof SmartApplicationListener) {
+            return false;
+        }
+        // Lambdas have no resolvable event type, they may listen to payload events
+        Class<?> eventType = ResolvableType.forClass(AopProxyUtils.ultimateTargetClass(listener))
+                .as(ApplicationListener.class).getGeneric().resolve();
+        return eventType == ApplicationEvent.class;
+    }
+
+    private ListenerInvoker bind(String beanName, Method method) {
+        Object bean = applicationContext.getBean(beanName);
+        Method invocableMethod = AopUtils.selectInvocableMethod(method, bean.getClass());
+        ReflectionUtils.makeAccessible(invocableMethod);
+
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(invocableMethod).bindTo(bean).asType(LISTENER_TYPE);
+            return new ListenerInvoker(method.getParameterTypes()[0], resolveOrder(method), handle,
+                    beanName + "." + method.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to bind domain event listener " + method, e);
+        }
+    }
+
+    private static boolean isDirectlyInvocable(Method method, EventListener eventListener) {
+        return method.getParameterCount() == 1
+                && eventListener.classes().length == 0
+                && !StringUtils.hasText(eventListener.condition())
+                && method.getReturnType() == void.class
+                && !(method.getGenericParameterTypes()[0] instanceof ParameterizedType)
+                && !ApplicationEvent.class.isAssignableFrom(method.getParameterTypes()[0])
+                && !method.getParameterTypes()[0].isAssignableFrom(PayloadApplicationEvent.class)
+                && !AnnotatedElementUtils.hasAnnotation(method, TransactionalEventListener.class)
+                && !AnnotatedElementUtils.hasAnnotation(method, Async.class)
+                && !AnnotatedElementUtils.hasAnnotation(method.getDeclaringClass(), Async.class);
+    }
+
+    private static List<Class<?>> listenedTypes(Method method, EventListener eventListener) {
+        List<Class<?>> types = new ArrayList<>(List.of(eventListener.classes()));
+        if (types.isEmpty() && method.getParameterCount() == 1) {
+            types.add(method.getParameterTypes()[0]);
+        }
+
+        // Listeners of payload events, or of any of their supertypes, may receive any domain event
+        types.replaceAll(type -> type.isAssignableFrom(PayloadApplicationEvent.class) ? Object.class : type);
+        return types;
+    }
+
+    private static int resolveOrder(Method method) {
+        Order order = AnnotatedElementUtils.findMergedAnnotation(method, Order.class);
+        return order != null ? order.value() : Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Listeners known at refresh time, resolved per concrete event type on first use.
+     */
+    private final class DispatchTable {
+
+        private final List<ListenerInvoker> listeners;
+        private final List<Class<?>> publisherEventTypes;
+        private final List<ApplicationListener<?>> otherListeners;
+
+        private final ClassValue<ListenerInvoker[]> invokers = new ClassValue<>() {
+            @Override
+            protected ListenerInvoker[] computeValue(Class<?> eventType) {
+                return resolve(eventType);
+            }
+        };
+
+        DispatchTable(List<ListenerInvoker> listeners, List<Class<?>> publisherEventTypes, List<ApplicationListener<?>> otherListeners) {
+            this.listeners = listeners;
+            this.publisherEventTypes = publisherEventTypes;
+            this.otherListeners = otherListeners;
+        }
+
+        private ListenerInvoker[] resolve(Class<?> eventType) {
+            for (Class<?> publisherEventType : publisherEventTypes) {
+                if (publisherEventType.isAssignableFrom(eventType)) {
+                    log.debug("Domain event {} has listeners requiring the event publisher", eventType.getSimpleName());
+                    return PUBLISHER_FALLBACK;
+                }
+            }
+
+            ResolvableType payloadEventType = ResolvableType.forClassWithGenerics(PayloadApplicationEvent.class, eventType);
+            for (ApplicationListener<?> listener : otherListeners) {
+                GenericApplicationListener genericListener = listener instanceof GenericApplicationListener generic
+                        ? generic : new GenericApplicationListenerAdapter(listener);
+                if (genericListener.supportsEventType(payloadEventType)
+                        && genericListener.supportsSourceType(applicationContext.getClass())) {
+                    log.debug("Domain event {} is listened to by {}, using the event publisher",
+                            eventType.getSimpleName(), listener.getClass().getName());
+                    return PUBLISHER_FALLBACK;
+                }
+            }
+
+            return listeners.stream()
+                    .filter(listener -> listener.eventType().isAssignableFrom(eventType))
+                    .toArray(ListenerInvoker[]::new);
+        }
+    }
+
+    /**
+     * A listener method bound to its bean.
+     */
+    private record ListenerInvoker(Class<?> eventType, int order, MethodHandle handle, String description) {
+
+        void invoke(Object event) {
+            try {
+                handle.invokeExact(event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e, "Domain event listener " + description + " failed");
+            }
+        }
+    }
+}
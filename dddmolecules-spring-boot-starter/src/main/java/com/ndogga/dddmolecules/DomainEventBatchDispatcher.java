@@ -0,0 +1,124 @@
+package com.ndogga.dddmolecules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.autoproxy.AutoProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivers the events of a collectAndPublish call, or of a transaction, to `@DomainEventBatchListener` methods,
+ * one list per listener holding every event of the type it declares.
+ * <p>
+ * Listener methods are discovered once all singletons are instantiated, like Spring does for
+ * `@EventListener` methods, and are bound to their bean, proxy included, as {@link MethodHandle}s.
+ */
+@Slf4j
+public class DomainEventBatchDispatcher implements SmartInitializingSingleton, BeanFactoryAware {
+
+    private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, List.class);
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private volatile List<BatchListener> listeners = List.of();
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<BatchListener> batchListeners = new ArrayList<>();
+
+        for (String beanName : beanFactory.getBeanNamesForType(Object.class, false, false)) {
+            Class<?> targetType = AutoProxyUtils.determineTargetClass(beanFactory, beanName);
+            if (targetType == null) {
+                continue;
+            }
+
+            Set<Method> methods = MethodIntrospector.selectMethods(targetType, (ReflectionUtils.MethodFilter) method ->
+                    AnnotatedElementUtils.hasAnnotation(method, DomainEventBatchListener.class));
+            for (Method method : methods) {
+                batchListeners.add(bind(beanName, method));
+            }
+        }
+
+        log.debug("Found {} domain event batch listeners", batchListeners.size());
+        listeners = List.copyOf(batchListeners);
+    }
+
+    /**
+     * Check if any batch listener has been registered.
+     * @return true if there is at least one batch listener
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Call every batch listener with the events matching its declared type.
+     * Listener failures are logged and do not prevent other listeners from being called.
+     * @param events the events of a single collectAndPublish call or transaction, in publication order
+     */
+    public void dispatch(List<Object> events) {
+        for (BatchListener listener : listeners) {
+            List<Object> batch = new ArrayList<>();
+            for (Object event : events) {
+                if (listener.eventType().isInstance(event)) {
+                    batch.add(event);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            try {
+                listener.handle().invokeExact(batch);
+                log.debug("Published batch of {} domain events to {}", batch.size(), listener.description());
+            } catch (Throwable e) {
+                log.error("Failed to publish batch of {} domain events to {}", batch.size(), listener.description(), e);
+            }
+        }
+    }
+
+    private BatchListener bind(String beanName, Method method) {
+        if (method.getParameterCount() != 1 || method.getParameterTypes()[0] != List.class) {
+            throw new IllegalStateException("@DomainEventBatchListener method " + method + " must declare a single List parameter");
+        }
+
+        Class<?> eventType = ResolvableType.forMethodParameter(method, 0).getGeneric(0).resolve(Object.class);
+        Object bean = beanFactory.getBean(beanName);
+        Method invocableMethod = AopUtils.selectInvocableMethod(method, bean.getClass());
+        ReflectionUtils.makeAccessible(invocableMethod);
+
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(invocableMethod).bindTo(bean).asType(LISTENER_TYPE);
+            return new BatchListener(eventType, handle, beanName + "." + method.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to bind domain event batch listener " + method, e);
+        }
+    }
+
+    /**
+     * A batch listener method bound to its bean.
+     */
+    private record BatchListener(Class<?> eventType, MethodHandle handle, String description) {
+    }
+}
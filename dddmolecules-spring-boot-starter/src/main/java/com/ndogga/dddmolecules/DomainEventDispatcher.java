@@ -0,0 +1,17 @@
+package com.ndogga.dddmolecules;
+
+/**
+ * Delivers a single domain event to its listeners once it is due for publication,
+ * i.e. after the transaction committed or immediately when there is none.
+ * <p>
+ * The default dispatcher goes through Spring's {@link org.springframework.context.ApplicationEventPublisher}.
+ */
+@FunctionalInterface
+public interface DomainEventDispatcher {
+
+    /**
+     * Deliver the event to its listeners.
+     * @param event the domain event
+     */
+    void dispatch(Object event);
+}
@@ -0,0 +1,30 @@
+package com.ndogga.dddmolecules;
+
+/**
+ * What {@link SpringDomainEventCollector} does with events published asynchronously
+ * while its async executor or ring buffer is full.
+ */
+public enum DomainEventOverflowPolicy {
+
+    /**
+     * Wait on the publishing thread until there is room. Listeners publishing events from a dispatcher thread
+     * or an executor task do not wait, see {@link DomainEventRingBuffer} and {@link AggregateOrderedExecutor}.
+     */
+    BLOCK,
+
+    /**
+     * Call the listeners on the publishing thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Write the events to a {@link DomainEventSpillBuffer} on disk, they are delivered once there is room again.
+     */
+    SPILL,
+
+    /**
+     * Throw a {@link java.util.concurrent.RejectedExecutionException} to the publishing thread.
+     */
+    FAIL
+
+}
@@ -0,0 +1,374 @@
+package com.ndogga.dddmolecules;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated multi-producer ring buffer handing domain events over from publishing threads to dispatcher threads.
+ * <p>
+ * Publishing a domain event claims the next slot with a single CAS on the cursor and writes the event and its
+ * aggregate into the slot, no lock is taken and nothing is allocated. The slot is then marked as published with
+ * its sequence, so dispatchers see slots in sequence order even when producers complete out of order.
+ * <p>
+ * Every dispatcher thread reads every slot but only handles the events of its partition, chosen from the
+ * {@link #orderingKey(AggregateRoot) ordering key} of the aggregate: events of the same aggregate are handled
+ * in order, events of different aggregates in parallel. Events without an aggregate, or of an aggregate without
+ * an id, are not ordered. Events whose aggregate is only known by its ordering key, e.g. replayed from disk,
+ * are published with {@link #publishKeyed(Integer, Object)} and land in the same partition.
+ * <p>
+ * A slot is reused once every dispatcher has moved past it; until then a producer claiming it waits, spinning
+ * then parking, or is refused when using {@link #tryPublish(AggregateRoot, Object)}. An idle dispatcher spins,
+ * yields, then parks until a producer publishes a slot or the buffer is closed, so it costs no CPU while idle.
+ * <p>
+ * A handler publishing more events, e.g. a listener raising events of its own, runs on a dispatcher thread
+ * which may be the one holding the buffer full. A dispatcher thread never waits for a slot: when the buffer is
+ * full, it handles the event itself right away, before the events of the same aggregate still in the buffer.
+ * <p>
+ * Handler failures are logged and never stop a dispatcher.
+ */
+@Slf4j
+public class DomainEventRingBuffer implements AutoCloseable {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 100_000;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final DomainEventSink handler;
+    private final Dispatcher[] dispatchers;
+
+    // Dispatchers parked until the next published slot, only read by producers otherwise
+    private final AtomicInteger parkedDispatchers = new AtomicInteger();
+
+    // Racy cache of the slowest dispatcher, only ever behind the actual value
+    private volatile long cachedDispatchedSequence = -1;
+
+    private volatile boolean running = true;
+
+    /**
+     * Create the ring buffer and start its dispatcher threads.
+     * @param capacity the number of slots, a power of two
+     * @param dispatcherCount the number of dispatcher threads
+     * @param handler receives each event on a dispatcher thread, with the aggregate it was drained from
+     * @param threadFactory creates the dispatcher threads
+     */
+    public DomainEventRingBuffer(int capacity, int dispatcherCount, DomainEventSink handler, ThreadFactory threadFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two, got " + capacity);
+        }
+        if (dispatcherCount <= 0) {
+            throw new IllegalArgumentException("Ring buffer needs at least one dispatcher, got " + dispatcherCount);
+        }
+
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        this.handler = handler;
+        this.dispatchers = new Dispatcher[dispatcherCount];
+
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        for (int i = 0; i < dispatcherCount; i++) {
+            dispatchers[i] = new Dispatcher(i);
+            dispatchers[i].thread = threadFactory.newThread(dispatchers[i]);
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.thread.start();
+        }
+    }
+
+    /**
+     * Create a ring buffer with daemon platform dispatcher threads.
+     * @param capacity the number of slots, a power of two
+     * @param dispatcherCount the number of dispatcher threads
+     * @param handler receives each event on a dispatcher thread
+     * @return the ring buffer
+     */
+    public static DomainEventRingBuffer create(int capacity, int dispatcherCount, DomainEventSink handler) {
+        ThreadFactory threadFactory = Thread.ofPlatform().name("domain-event-dispatcher-", 0).daemon(true).factory();
+        return new DomainEventRingBuffer(capacity, dispatcherCount, handler, threadFactory);
+    }
+
+    /**
+     * Get the key ordering the events of an aggregate, a hash of its class and {@link AggregateRoot#getId()}.
+     * Aggregates sharing a key are ordered together, which is harmless.
+     * @param source the aggregate, null if unknown
+     * @return the ordering key, null if there is no aggregate or it has no id
+     */
+    public static Integer orderingKey(AggregateRoot<?> source) {
+        Object id = source != null ? source.getId() : null;
+        return id != null ? 31 * source.getClass().hashCode() + id.hashCode() : null;
+    }
+
+    /**
+     * Hand an event over to the dispatchers, waiting for a free slot if the buffer is full.
+     * Called from a dispatcher thread, the event is handled on that thread instead of waiting.
+     * @param source the aggregate the event was drained from, null if unknown
+     * @param event the domain event
+     */
+    public void publish(AggregateRoot<?> source, Object event) {
+        publish(source, orderingKey(source), event);
+    }
+
+    /**
+     * Hand an event over to the dispatchers like {@link #publish(AggregateRoot, Object)},
+     * ordered by the given key instead of an aggregate.
+     * @param orderingKey the ordering key of the aggregate the event was drained from, null if unordered
+     * @param event the domain event
+     */
+    public void publishKeyed(Integer orderingKey, Object event) {
+        publish(null, orderingKey, event);
+    }
+
+    private void publish(AggregateRoot<?> source, Integer orderingKey, Object event) {
+        long sequence;
+        int idle = 0;
+        while ((sequence = tryClaim()) < 0) {
+            if (idle == 0 && isDispatcherThread()) {
+                // Waiting could block the dispatcher every other one is waiting for
+                dispatch(source, event);
+                return;
+            }
+            idle = backOff(idle);
+        }
+        write(sequence, source, orderingKey, event);
+    }
+
+    /**
+     * Hand an event over to the dispatchers unless the buffer is full.
+     * @param source the aggregate the event was drained from, null if unknown
+     * @param event the domain event
+     * @return true if the event was accepted, false if the buffer is full
+     */
+    public boolean tryPublish(AggregateRoot<?> source, Object event) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        write(sequence, source, orderingKey(source), event);
+        return true;
+    }
+
+    /**
+     * Get the number of slots.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Get the number of events claimed but not yet passed by every dispatcher.
+     * @return the number of pending events
+     */
+    public long getPendingEvents() {
+        return Math.max(0, cursor.get() - minimumDispatchedSequence());
+    }
+
+    /**
+     * Stop accepting events, then wait for the dispatchers to handle the pending ones.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Dispatcher dispatcher : dispatchers) {
+            LockSupport.unpark(dispatcher.thread);
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            try {
+                dispatcher.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Claim the next slot if it is free.
+     * @return the claimed sequence, or -1 if the buffer is full
+     */
+    private long tryClaim() {
+        while (true) {
+            if (!running) {
+                throw new IllegalStateException("Domain event ring buffer is closed");
+            }
+
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+
+            if (wrapPoint > cachedDispatchedSequence) {
+                long dispatched = minimumDispatchedSequence();
+                cachedDispatchedSequence = dispatched;
+                if (wrapPoint > dispatched) {
+                    return -1;
+                }
+            }
+
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private void write(long sequence, AggregateRoot<?> source, Integer orderingKey, Object event) {
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+        slot.source = source;
+        slot.event = event;
+        slot.partition = partitionOf(orderingKey, sequence);
+
+        // Volatile write, publishes the slot fields to the dispatchers
+        published.set(index, sequence);
+
+        // Every dispatcher moves past every slot, so all parked ones are woken, not only the one of the partition
+        if (parkedDispatchers.get() > 0) {
+            for (Dispatcher dispatcher : dispatchers) {
+                if (dispatcher.parked) {
+                    LockSupport.unpark(dispatcher.thread);
+                }
+            }
+        }
+    }
+
+    private int partitionOf(Integer orderingKey, long sequence) {
+        if (dispatchers.length == 1) {
+            return 0;
+        }
+        if (orderingKey == null) {
+            return (int) (sequence % dispatchers.length);
+        }
+        return Math.floorMod(orderingKey, dispatchers.length);
+    }
+
+    private boolean isDispatcherThread() {
+        Thread current = Thread.currentThread();
+        for (Dispatcher dispatcher : dispatchers) {
+            if (dispatcher.thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dispatch(AggregateRoot<?> source, Object event) {
+        try {
+            handler.accept(source, event);
+        } catch (Throwable e) {
+            log.error("Failed to dispatch domain event {} from the ring buffer", event.getClass().getSimpleName(), e);
+        }
+    }
+
+    private long minimumDispatchedSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Dispatcher dispatcher : dispatchers) {
+            minimum = Math.min(minimum, dispatcher.sequence.get());
+        }
+        return minimum;
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * A preallocated slot. Fields are plain, they are published by the volatile write of the slot's sequence.
+     */
+    private static final class Slot {
+
+        private AggregateRoot<?> source;
+        private Object event;
+        private int partition;
+    }
+
+    /**
+     * Handles the events of one partition, advancing its sequence once per batch of published slots.
+     */
+    private final class Dispatcher implements Runnable {
+
+        private final int partition;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private Thread thread;
+        private volatile boolean parked;
+
+        Dispatcher(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+
+            while (true) {
+                long available = highestPublished(next);
+                if (available >= next) {
+                    for (long current = next; current <= available; current++) {
+                        Slot slot = slots[(int) current & mask];
+                        if (slot.partition == partition) {
+                            handle(slot);
+                        }
+                    }
+                    sequence.set(available);
+                    next = available + 1;
+                    idle = 0;
+                } else if (!running && next > cursor.get()) {
+                    return;
+                } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                    idle = backOff(idle);
+                } else {
+                    park(next);
+                }
+            }
+        }
+
+        private void park(long next) {
+            parked = true;
+            parkedDispatchers.incrementAndGet();
+            // Checked again once parked is visible, a producer publishing meanwhile either sees it or is seen here
+            if (running && published.get((int) next & mask) != next) {
+                LockSupport.park(this);
+            }
+            parked = false;
+            parkedDispatchers.decrementAndGet();
+        }
+
+        private long highestPublished(long from) {
+            long sequence = from;
+            long limit = from + mask;
+            while (sequence <= limit && published.get((int) sequence & mask) == sequence) {
+                sequence++;
+            }
+            return sequence - 1;
+        }
+
+        private void handle(Slot slot) {
+            AggregateRoot<?> source = slot.source;
+            Object event = slot.event;
+
+            // Only this dispatcher reads the references of its slots, release them for the garbage collector
+            slot.source = null;
+            slot.event = null;
+
+            dispatch(source, event);
+        }
+    }
+}
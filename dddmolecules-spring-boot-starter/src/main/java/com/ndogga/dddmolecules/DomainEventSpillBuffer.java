@@ -0,0 +1,218 @@
+package com.ndogga.dddmolecules;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * First-in first-out buffer of domain events on disk, taking the events that do not fit in memory
+ * while asynchronous publishing is saturated, see {@link DomainEventOverflowPolicy#SPILL}.
+ * <p>
+ * Events are encoded with a {@link DomainEventCodec}, so only record events can be spilled, and appended
+ * to a temporary file prefixed by their length and the ordering key of their aggregate, see
+ * {@link DomainEventRingBuffer#orderingKey(AggregateRoot)}, so they can be replayed in order with the events
+ * of the same aggregate. The file is truncated each time it has been fully read. It is a memory relief, not a
+ * durable store: the file is not forced and is deleted on close. A record that cannot be decoded is logged and
+ * skipped.
+ * <p>
+ * The buffer also tracks whether it is being drained: {@link #append(Integer, List)} reports when it turns
+ * the buffer from idle to draining, and {@link #poll(int)} turns it back to idle once it is empty, so exactly
+ * one consumer drains it at a time. A consumer that cannot go on {@link #discard() discards} the buffer,
+ * which turns it back to idle as well.
+ */
+@Slf4j
+public class DomainEventSpillBuffer implements AutoCloseable {
+
+    // Event length, ordering key presence and ordering key
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DomainEventCodec codec;
+
+    // Guarded by this
+    private long readPosition;
+    private long writePosition;
+    private long pendingEvents;
+
+    private volatile boolean draining;
+
+    public DomainEventSpillBuffer(Path directory) {
+        this(directory, new DomainEventCodec());
+    }
+
+    /**
+     * Create a spill file in the given directory, creating the directory if needed.
+     * @param directory the directory of the spill file
+     * @param codec the codec encoding and decoding the spilled events
+     */
+    public DomainEventSpillBuffer(Path directory, DomainEventCodec codec) {
+        this.codec = codec;
+        try {
+            Files.createDirectories(directory);
+            this.file = Files.createTempFile(directory, "domain-events-", ".spill");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create domain event spill file in " + directory, e);
+        }
+    }
+
+    /**
+     * Append events of one aggregate to the buffer, all or none of them.
+     * @param orderingKey the ordering key of the aggregate the events were drained from, null if unordered
+     * @param events the domain events, records only
+     * @return true if the buffer was idle, in which case the caller must start draining it
+     * @throws IllegalArgumentException if an event cannot be encoded
+     */
+    public boolean append(Integer orderingKey, List<Object> events) {
+        // Encoded before taking the lock, an event that cannot be encoded leaves the buffer untouched
+        int[] sizes = new int[events.size()];
+        int size = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = codec.sizeOf(events.get(i));
+            size += RECORD_HEADER_SIZE + sizes[i];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < sizes.length; i++) {
+            buffer.putInt(sizes[i]);
+            buffer.put((byte) (orderingKey != null ? 1 : 0));
+            buffer.putInt(orderingKey != null ? orderingKey : 0);
+            codec.encode(events.get(i), buffer);
+        }
+        buffer.flip();
+
+        synchronized (this) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, writePosition + buffer.position());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to spill " + events.size() + " domain events to " + file, e);
+            }
+            writePosition += size;
+            pendingEvents += events.size();
+
+            boolean idle = !draining;
+            draining = true;
+            return idle;
+        }
+    }
+
+    /**
+     * Remove the oldest events from the buffer.
+     * Returns an empty list, and marks the buffer as idle, once every event has been polled.
+     * @param maxEvents the maximum number of events to return
+     * @return the events, oldest first
+     */
+    public synchronized List<SpilledEvent> poll(int maxEvents) {
+        List<SpilledEvent> events = new ArrayList<>(Math.min(maxEvents, (int) Math.min(pendingEvents, Integer.MAX_VALUE)));
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            while (events.size() < maxEvents && readPosition < writePosition) {
+                readFully(header.clear(), readPosition);
+                header.flip();
+                int length = header.getInt();
+                Integer orderingKey = header.get() != 0 ? header.getInt() : null;
+                ByteBuffer record = ByteBuffer.allocate(length);
+                readFully(record, readPosition + RECORD_HEADER_SIZE);
+                readPosition += RECORD_HEADER_SIZE + length;
+                pendingEvents--;
+
+                try {
+                    events.add(new SpilledEvent(orderingKey, codec.decode(record.flip())));
+                } catch (RuntimeException e) {
+                    // Skipped rather than retried, it would block every event spilled after it
+                    log.error("Skipping spilled domain event that cannot be decoded from {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read spilled domain events from " + file, e);
+        }
+
+        if (events.isEmpty()) {
+            reset();
+        }
+        return events;
+    }
+
+    /**
+     * Drop every event not yet polled and mark the buffer as idle, for a consumer that cannot deliver them.
+     * @return the number of dropped events
+     */
+    public synchronized long discard() {
+        long discarded = pendingEvents;
+        readPosition = writePosition;
+        pendingEvents = 0;
+        reset();
+        return discarded;
+    }
+
+    /**
+     * Check if the buffer holds events or is still being drained.
+     * @return true until the consumer polled an empty buffer
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Get the number of events on disk.
+     * @return the number of spilled events not yet polled
+     */
+    public synchronized long getPendingEvents() {
+        return pendingEvents;
+    }
+
+    /**
+     * Close and delete the spill file, discarding the events not yet polled.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete domain event spill file " + file, e);
+        }
+    }
+
+    private void reset() {
+        draining = false;
+        if (writePosition == 0) {
+            return;
+        }
+
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to truncate domain event spill file " + file, e);
+        }
+        readPosition = 0;
+        writePosition = 0;
+    }
+
+    private void readFully(ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("Unexpected end of domain event spill file " + file);
+            }
+        }
+    }
+
+    /**
+     * A spilled domain event with the ordering key of its aggregate.
+     * @param orderingKey the ordering key, null if the event is not ordered
+     * @param event the domain event
+     */
+    public record SpilledEvent(Integer orderingKey, Object event) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.ndogga.dddmolecules;
+
+import com.ndogga.dddmolecules.jfr.DispatchEvent;
+
+/**
+ * {@link DomainEventDispatcher} timing the listeners of each event, reporting them to {@link DomainEventMetrics}
+ * and recording them as a {@link DispatchEvent} for the flight recorder. Failures are recorded and rethrown.
+ */
+public class InstrumentedDomainEventDispatcher implements DomainEventDispatcher {
+
+    private final DomainEventDispatcher delegate;
+    private final DomainEventMetrics metrics;
+
+    public InstrumentedDomainEventDispatcher(DomainEventDispatcher delegate, DomainEventMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wrap the dispatcher. A recording may start at any time, so the dispatcher is wrapped even if the metrics
+     * are disabled; it then costs a single check per event while the flight recorder is not recording dispatches.
+     * @param delegate the dispatcher calling the listeners
+     * @param metrics the metrics
+     * @return the instrumented dispatcher
+     */
+    public static DomainEventDispatcher instrument(DomainEventDispatcher delegate, DomainEventMetrics metrics) {
+        return new InstrumentedDomainEventDispatcher(delegate, metrics);
+    }
+
+    @Override
+    public void dispatch(Object event) {
+        DispatchEvent recording = new DispatchEvent();
+        if (!metrics.isEnabled() && !recording.isEnabled()) {
+            delegate.dispatch(event);
+            return;
+        }
+
+        recording.begin();
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.dispatch(event);
+            failed = false;
+        } finally {
+            if (metrics.isEnabled()) {
+                metrics.recordListener(event.getClass(), System.nanoTime() - startTime, failed);
+            }
+            if (recording.shouldCommit()) {
+                recording.eventType = event.getClass();
+                recording.failed = failed;
+                recording.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ndogga.dddmolecules;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link DomainEventMetrics} exporting the domain event pipeline to a Micrometer {@link MeterRegistry}:
+ * - {@code domain.events.collect}: timer of collectAndPublish calls
+ * - {@code domain.events.collected}: counter of drained events, tagged with the event type
+ * - {@code domain.events.publish}: timer of the delivery of events to their listeners
+ * - {@code domain.events.listener}: timer of the listeners of each event, tagged with the event type and outcome
+ * - {@code domain.events.scope}: timer of `@PublishDomainEvents` scopes
+ * - {@code domain.events.scope.aggregates}: distribution of the aggregates tracked per scope
+ * <p>
+ * Gauges and function counters, e.g. queue depths, are registered under the given names. They hold their
+ * value supplier strongly, Micrometer would otherwise only keep a weak reference to the lambda and report NaN
+ * once it is collected.
+ * Meters tagged with the event type are looked up once per type and cached. The tag is the fully qualified
+ * class name, so event types sharing a simple name in different packages or enclosing types are kept apart.
+ */
+public class MicrometerDomainEventMetrics implements DomainEventMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer collectTimer;
+    private final Timer publishTimer;
+    private final Timer scopeTimer;
+    private final DistributionSummary scopeAggregates;
+
+    private final ClassValue<Counter> eventCounters = new ClassValue<>() {
+        @Override
+        protected Counter computeValue(Class<?> eventType) {
+            return Counter.builder("domain.events.collected")
+                    .description("Domain events drained from aggregates")
+                    .tag("type", eventType.getName())
+                    .register(registry);
+        }
+    };
+
+    private final ClassValue<Timer[]> listenerTimers = new ClassValue<>() {
+        @Override
+        protected Timer[] computeValue(Class<?> eventType) {
+            return new Timer[]{listenerTimer(eventType, "success"), listenerTimer(eventType, "failure")};
+        }
+    };
+
+    public MicrometerDomainEventMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.collectTimer = Timer.builder("domain.events.collect")
+                .description("Duration of collectAndPublish calls")
+                .register(registry);
+        this.publishTimer = Timer.builder("domain.events.publish")
+                .description("Duration of the delivery of domain events to their listeners")
+                .register(registry);
+        this.scopeTimer = Timer.builder("domain.events.scope")
+                .description("Duration of @PublishDomainEvents scopes")
+                .register(registry);
+        this.scopeAggregates = DistributionSummary.builder("domain.events.scope.aggregates")
+                .description("Aggregates tracked per @PublishDomainEvents scope")
+                .register(registry);
+    }
+
+    @Override
+    public void recordCollection(int aggregateCount, int eventCount, long durationNanos) {
+        collectTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordEvent(Class<?> eventType) {
+        eventCounters.get(eventType).increment();
+    }
+
+    @Override
+    public void recordPublication(int eventCount, long durationNanos) {
+        publishTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordListener(Class<?> eventType, long durationNanos, boolean failed) {
+        listenerTimers.get(eventType)[failed ? 1 : 0].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordScope(int trackedAggregates, long durationNanos) {
+        scopeTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        scopeAggregates.record(trackedAggregates);
+    }
+
+    @Override
+    public void registerGauge(String name, LongSupplier value) {
+        Gauge.builder(name, value, LongSupplier::getAsLong).strongReference(true).register(registry);
+    }
+
+    @Override
+    public void registerCounter(String name, LongSupplier count) {
+        FunctionCounter.builder(name, count, LongSupplier::getAsLong).strongReference(true).register(registry);
+    }
+
+    private Timer listenerTimer(Class<?> eventType, String outcome) {
+        return Timer.builder("domain.events.listener")
+                .description("Duration of the listeners of a domain event")
+                .tag("type", eventType.getName())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
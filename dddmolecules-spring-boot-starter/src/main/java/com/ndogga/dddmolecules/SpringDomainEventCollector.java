@@ -1,69 +1,579 @@
 package com.ndogga.dddmolecules;
 
+import com.ndogga.dddmolecules.DomainEventSpillBuffer.SpilledEvent;
+import com.ndogga.dddmolecules.jfr.PublishEvent;
+import com.ndogga.dddmolecules.jfr.TypeNames;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Example implementation of DomainEventCollector for Spring Boot infrastructure.
  * 
  * This implementation:
  * 1. Extends ReflectionBasedEventCollector for annotation support
- * 2. Uses Spring's ApplicationEventPublisher for event publishing
+ * 2. Uses Spring's ApplicationEventPublisher for event publishing, or any other DomainEventDispatcher
  * 3. Ensures events are published after transaction commit
  * 4. Handles both sync and async event publishing
+ * 5. Outside of a transaction, publishes events as they are drained without buffering them
+ * 
+ * Within a transaction, every collectAndPublish call appends its events to a single buffer bound to the
+ * transaction. The buffer is flushed once after commit, in publication order, and discarded as a whole
+ * on rollback. Events published by synchronous listeners during the flush are delivered in the same flush.
+ * 
+ * In async mode, listeners run on an {@link AggregateOrderedExecutor} after commit: events of the
+ * same aggregate, identified by its {@link DomainEventRingBuffer#orderingKey(AggregateRoot) ordering key},
+ * are delivered in order, events of different aggregates in parallel. Aggregates without an id are not ordered.
+ * 
+ * Once the per-event listeners have been called, the events of the collectAndPublish call, or of the
+ * whole transaction, are also handed to the `@DomainEventBatchListener` methods, see
+ * {@link DomainEventBatchDispatcher}. In async
+ * mode, batches are delivered on their own lane, in commit order, each once the per-event listeners of its
+ * events have returned. Events handed over to the ring buffer or spilled to disk are not waited for: their
+ * per-event listeners may still be running, or not have started, when the batch is delivered.
+ * 
+ * A {@link DomainEventTap}, e.g. a {@link JournalDomainEventTap}, receives the events of each publication on the
+ * publishing thread before the listeners are called: after commit within a transaction, so events of a
+ * rolled back transaction are never tapped. Tap failures are logged and do not prevent the publication.
+ * 
+ * With a {@link DomainEventRingBuffer}, the publishing thread only writes events into the ring buffer,
+ * as they are drained or after commit, and the ring buffer's dispatcher threads call the listeners.
+ * The ring buffer takes precedence over the async executor for per-event delivery.
+ * 
+ * Both the async executor and the ring buffer can be bounded. Events published while they are full
+ * are handled by the {@link DomainEventOverflowPolicy}: the publishing thread waits, calls the listeners
+ * itself, spills the events to a {@link DomainEventSpillBuffer}, or fails. Once events have been spilled,
+ * later events are spilled too until the buffer is drained. Spilled events keep the ordering key of their
+ * aggregate and are replayed onto its ring buffer partition or executor lane, so they are delivered in order,
+ * after the events of the same aggregate already queued in memory. If the replay fails, the events left on
+ * disk are discarded and logged, and spilling starts afresh with the next overflow.
+ * 
+ * Besides the collection measurements of {@link ReflectionEventCollector}, the delivery of events is timed
+ * and the queue depth, overflow count and spilled events are exported to the {@link DomainEventMetrics}.
+ * Each delivery is also recorded as a {@link PublishEvent} for the flight recorder. Events streamed to their
+ * listeners as they are drained are recorded as a single delivery per collectAndPublish call.
  */
 @Slf4j
 public class SpringDomainEventCollector extends ReflectionEventCollector {
     
-    private final ApplicationEventPublisher applicationEventPublisher;
+    private static final int SPILL_REPLAY_BATCH_SIZE = 256;
+    
+    private final DomainEventDispatcher domainEventDispatcher;
+    
+    private AggregateOrderedExecutor asyncExecutor;
+    
+    private DomainEventBatchDispatcher batchDispatcher;
+    
+    private DomainEventTap tap;
+    
+    private DomainEventRingBuffer ringBuffer;
+    
+    private DomainEventOverflowPolicy overflowPolicy = DomainEventOverflowPolicy.BLOCK;
+    
+    private DomainEventSpillBuffer spillBuffer;
+    
+    private final LongAdder overflowCount = new LongAdder();
     
     public SpringDomainEventCollector(ApplicationEventPublisher applicationEventPublisher) {
-        this.applicationEventPublisher = applicationEventPublisher;
+        this((DomainEventDispatcher) applicationEventPublisher::publishEvent);
+    }
+    
+    public SpringDomainEventCollector(DomainEventDispatcher domainEventDispatcher) {
+        this.domainEventDispatcher = domainEventDispatcher;
+    }
+    
+    /**
+     * Run listeners asynchronously on the given executor instead of on the publishing thread.
+     * @param asyncExecutor the executor, null to publish synchronously
+     */
+    public void setAsyncExecutor(AggregateOrderedExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    /**
+     * Deliver the events of each collectAndPublish call to the given batch listeners as well.
+     * @param batchDispatcher the batch dispatcher, null to disable batch delivery
+     */
+    public void setBatchDispatcher(DomainEventBatchDispatcher batchDispatcher) {
+        this.batchDispatcher = batchDispatcher;
     }
     
+    /**
+     * Hand the events of each publication to the given tap as well, once they are published.
+     * @param tap the tap, null to disable it
+     */
+    public void setTap(DomainEventTap tap) {
+        this.tap = tap;
+    }
+    
+    /**
+     * Hand events over to the given ring buffer instead of calling listeners on the publishing thread.
+     * @param ringBuffer the ring buffer, null to publish on the publishing thread or the async executor
+     */
+    public void setRingBuffer(DomainEventRingBuffer ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+    
+    /**
+     * Choose what happens to events published while the async executor or the ring buffer is full.
+     * {@link DomainEventOverflowPolicy#SPILL} waits like {@link DomainEventOverflowPolicy#BLOCK} without a spill buffer.
+     * @param overflowPolicy the overflow policy, {@link DomainEventOverflowPolicy#BLOCK} by default
+     */
+    public void setOverflowPolicy(DomainEventOverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    /**
+     * Spill events to the given buffer under the {@link DomainEventOverflowPolicy#SPILL} policy.
+     * @param spillBuffer the spill buffer
+     */
+    public void setSpillBuffer(DomainEventSpillBuffer spillBuffer) {
+        this.spillBuffer = spillBuffer;
+    }
+    
+    /**
+     * Get the number of events waiting in the ring buffer, or of tasks waiting in the async executor.
+     * @return the current queue depth, zero when publishing synchronously
+     */
+    public long getQueueDepth() {
+        if (ringBuffer != null) {
+            return ringBuffer.getPendingEvents();
+        }
+        return asyncExecutor != null ? asyncExecutor.getPendingTasks() : 0;
+    }
+    
+    /**
+     * Get the number of times the async executor or the ring buffer was full, whatever the overflow policy.
+     * @return the number of overflows
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+    
+    /**
+     * Get the number of events waiting in the spill buffer.
+     * @return the number of spilled events not yet delivered
+     */
+    public long getSpilledEvents() {
+        return spillBuffer != null ? spillBuffer.getPendingEvents() : 0;
+    }
+    
+    @Override
+    public void setMetrics(DomainEventMetrics metrics) {
+        super.setMetrics(metrics);
+        metrics.registerGauge("domain.events.queue.depth", this::getQueueDepth);
+        metrics.registerCounter("domain.events.overflows", this::getOverflowCount);
+        metrics.registerGauge("domain.events.spilled", this::getSpilledEvents);
+    }
+    
+    @Override
+    protected DomainEventSink openEventSink() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Events are kept until the transaction commits, appended straight to the transaction's buffer
+            return transactionEventBuffer();
+        }
+        
+        if (asyncExecutor != null || hasBatchListeners() || tap != null) {
+            // Events are grouped per aggregate for async delivery or handed over as a whole to batch listeners and the tap
+            return new AggregateEventsBuffer();
+        }
+
+        // No transaction, publish each event as soon as it is drained
+        return new StreamingSink();
+    }
+
     @Override
     protected void publishEvents(List<Object> events) {
-        if (events.isEmpty()) {
+        publishAggregateEvents(List.of(new AggregateEvents(null, events)), events.size());
+    }
+    
+    private void publishAggregateEvents(List<AggregateEvents> aggregateEvents, int eventCount) {
+        if (eventCount == 0) {
             return;
         }
         
-        log.debug("Publishing {} domain events", events.size());
+        log.debug("Publishing {} domain events", eventCount);
         
-        // If we're in a transaction, register for after-commit publishing
+        // If we're in a transaction, keep them for the after-commit flush
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    log.debug("Transaction committed, publishing {} domain events", events.size());
-                    publishEventsImmediately(events);
-                }
-                
-                @Override
-                public void afterCompletion(int status) {
-                    if (status == STATUS_ROLLED_BACK) {
-                        log.debug("Transaction rolled back, discarding {} domain events", events.size());
-                    }
-                }
-            });
+            TransactionEventBuffer buffer = transactionEventBuffer();
+            for (AggregateEvents events : aggregateEvents) {
+                events.events().forEach(event -> buffer.accept(events.source(), event));
+            }
         } else {
             // No transaction, publish immediately
+            deliver(aggregateEvents, eventCount);
+        }
+    }
+    
+    private TransactionEventBuffer transactionEventBuffer() {
+        TransactionEventBuffer buffer = (TransactionEventBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new TransactionEventBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+    
+    private void deliver(List<AggregateEvents> aggregateEvents, int eventCount) {
+        DomainEventMetrics metrics = getMetrics();
+        long startTime = metrics.isEnabled() ? System.nanoTime() : 0;
+        PublishEvent recording = new PublishEvent();
+        recording.begin();
+        
+        // Every event of the publication, for the tap and the batch listeners
+        boolean batches = hasBatchListeners();
+        List<Object> allEvents = batches || tap != null ? allEvents(aggregateEvents, eventCount) : null;
+        if (tap != null) {
+            tapEvents(allEvents);
+        }
+        
+        // Asynchronous batches wait for the per-event listeners of the same publication
+        List<CompletableFuture<Void>> deliveries = batches && ringBuffer == null && asyncExecutor != null
+                ? new ArrayList<>(aggregateEvents.size()) : null;
+        
+        for (AggregateEvents events : aggregateEvents) {
+            if (ringBuffer != null) {
+                events.events().forEach(event -> deliverToRingBuffer(events.source(), event));
+            } else if (asyncExecutor != null) {
+                deliverToAsyncExecutor(events, deliveries);
+            } else {
+                publishEventsImmediately(events.events());
+            }
+        }
+        
+        if (batches) {
+            if (asyncExecutor != null) {
+                CompletableFuture<Void> delivered = deliveries != null
+                        ? CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)) : null;
+                Runnable task = () -> {
+                    // Blocks the batch lane, so later batches keep waiting behind this one
+                    if (delivered != null) {
+                        delivered.join();
+                    }
+                    batchDispatcher.dispatch(allEvents);
+                };
+                if (!asyncExecutor.tryExecute(batchDispatcher, task)) {
+                    // Batches are never spilled, they would lose their grouping
+                    overflow(null, allEvents, false, () -> asyncExecutor.execute(batchDispatcher, task), task);
+                }
+            } else {
+                batchDispatcher.dispatch(allEvents);
+            }
+        }
+        
+        if (metrics.isEnabled()) {
+            metrics.recordPublication(eventCount, System.nanoTime() - startTime);
+        }
+        if (recording.shouldCommit()) {
+            Set<Class<?>> eventTypes = new LinkedHashSet<>();
+            aggregateEvents.forEach(events -> events.events().forEach(event -> eventTypes.add(event.getClass())));
+            commit(recording, eventCount, eventTypes);
+        }
+    }
+    
+    private void commit(PublishEvent recording, int eventCount, Set<Class<?>> eventTypes) {
+        recording.eventCount = eventCount;
+        recording.eventTypes = TypeNames.of(eventTypes);
+        recording.delivery = ringBuffer != null ? "ring-buffer" : asyncExecutor != null ? "async" : "synchronous";
+        recording.commit();
+    }
+    
+    private static List<Object> allEvents(List<AggregateEvents> aggregateEvents, int eventCount) {
+        if (aggregateEvents.size() == 1) {
+            return aggregateEvents.get(0).events();
+        }
+        List<Object> allEvents = new ArrayList<>(eventCount);
+        aggregateEvents.forEach(events -> allEvents.addAll(events.events()));
+        return allEvents;
+    }
+    
+    private void tapEvents(List<Object> events) {
+        try {
+            tap.published(events);
+        } catch (RuntimeException e) {
+            log.error("Domain event tap failed for {} domain events", events.size(), e);
+        }
+    }
+    
+    private void deliverToRingBuffer(AggregateRoot<?> source, Object event) {
+        if (isSpilling()) {
+            spill(DomainEventRingBuffer.orderingKey(source), List.of(event));
+            return;
+        }
+        
+        if (!ringBuffer.tryPublish(source, event)) {
+            overflow(DomainEventRingBuffer.orderingKey(source), List.of(event), true,
+                    () -> ringBuffer.publish(source, event), () -> publishEventImmediately(event));
+        }
+    }
+    
+    private void deliverToAsyncExecutor(AggregateEvents events, List<CompletableFuture<Void>> deliveries) {
+        Integer orderingKey = events.orderingKey();
+        if (isSpilling()) {
+            spill(orderingKey, events.events());
+            return;
+        }
+        
+        CompletableFuture<Void> delivered = deliveries != null ? new CompletableFuture<>() : null;
+        Runnable task = delivered == null ? () -> publishEventsImmediately(events.events()) : () -> {
+            try {
+                publishEventsImmediately(events.events());
+            } finally {
+                delivered.complete(null);
+            }
+        };
+        if (delivered != null) {
+            deliveries.add(delivered);
+        }
+        
+        if (!asyncExecutor.tryExecute(orderingKey, task)
+                && overflow(orderingKey, events.events(), true, () -> asyncExecutor.execute(orderingKey, task), task)
+                && delivered != null) {
+            // Spilled events are delivered later, the batch does not wait for them
+            delivered.complete(null);
+        }
+    }
+    
+    /**
+     * Apply the overflow policy to events that did not fit.
+     * @return true if the events were spilled to disk
+     */
+    private boolean overflow(Integer orderingKey, List<Object> events, boolean spillable, Runnable blockingSubmit, Runnable callerTask) {
+        overflowCount.increment();
+        
+        DomainEventOverflowPolicy policy = overflowPolicy;
+        if (policy == DomainEventOverflowPolicy.SPILL && (spillBuffer == null || !spillable)) {
+            policy = DomainEventOverflowPolicy.BLOCK;
+        }
+        
+        switch (policy) {
+            case BLOCK -> blockingSubmit.run();
+            case CALLER_RUNS -> callerTask.run();
+            case SPILL -> spill(orderingKey, events);
+            case FAIL -> throw new RejectedExecutionException(
+                    "Asynchronous domain event publishing is saturated, rejected " + events.size() + " domain events");
+        }
+        return policy == DomainEventOverflowPolicy.SPILL;
+    }
+    
+    private boolean isSpilling() {
+        return overflowPolicy == DomainEventOverflowPolicy.SPILL && spillBuffer != null && spillBuffer.isDraining();
+    }
+    
+    private void spill(Integer orderingKey, List<Object> events) {
+        boolean startReplay;
+        try {
+            startReplay = spillBuffer.append(orderingKey, events);
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot spill {} domain events, publishing them on the caller thread: {}", events.size(), e.getMessage());
             publishEventsImmediately(events);
+            return;
+        }
+        
+        log.debug("Spilled {} domain events to disk", events.size());
+        if (startReplay) {
+            Thread.ofVirtual().name("domain-event-spill-replay").start(this::replaySpilledEvents);
         }
     }
     
+    private void replaySpilledEvents() {
+        try {
+            List<SpilledEvent> events;
+            while (!(events = spillBuffer.poll(SPILL_REPLAY_BATCH_SIZE)).isEmpty()) {
+                // Waits for room, spilled events join the partition or lane of their aggregate, behind its queued events
+                if (ringBuffer != null) {
+                    events.forEach(spilled -> ringBuffer.publishKeyed(spilled.orderingKey(), spilled.event()));
+                } else {
+                    replayToAsyncExecutor(events);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Events must not keep being spilled with nobody left to replay them
+            long discarded = spillBuffer.discard();
+            log.error("Failed to replay spilled domain events, discarded the {} left on disk", discarded, e);
+        }
+    }
+    
+    private void replayToAsyncExecutor(List<SpilledEvent> events) {
+        int start = 0;
+        while (start < events.size()) {
+            // Consecutive events of one aggregate are delivered by a single task, like when they were published
+            Integer orderingKey = events.get(start).orderingKey();
+            int end = start + 1;
+            while (orderingKey != null && end < events.size() && orderingKey.equals(events.get(end).orderingKey())) {
+                end++;
+            }
+            
+            List<Object> run = new ArrayList<>(end - start);
+            events.subList(start, end).forEach(spilled -> run.add(spilled.event()));
+            asyncExecutor.execute(orderingKey, () -> publishEventsImmediately(run));
+            start = end;
+        }
+    }
+    
+    private boolean hasBatchListeners() {
+        return batchDispatcher != null && batchDispatcher.hasListeners();
+    }
+    
     private void publishEventsImmediately(List<Object> events) {
         for (Object event : events) {
-            try {
-                applicationEventPublisher.publishEvent(event);
-                log.debug("Published domain event: {}", event.getClass().getSimpleName());
-            } catch (Exception e) {
-                log.error("Failed to publish domain event: {}", event.getClass().getSimpleName(), e);
-                // Could implement retry logic, dead letter queue, etc.
+            publishEventImmediately(event);
+        }
+    }
+
+    private void publishEventImmediately(Object event) {
+        try {
+            domainEventDispatcher.dispatch(event);
+            log.debug("Published domain event: {}", event.getClass().getSimpleName());
+        } catch (Exception e) {
+            log.error("Failed to publish domain event: {}", event.getClass().getSimpleName(), e);
+            // Could implement retry logic, dead letter queue, etc.
+        }
+    }
+
+    /**
+     * The events drained from one aggregate during a single collectAndPublish call.
+     */
+    private record AggregateEvents(AggregateRoot<?> source, List<Object> events) {
+
+        Integer orderingKey() {
+            return DomainEventRingBuffer.orderingKey(source);
+        }
+    }
+
+    /**
+     * Sink buffering drained events, grouped per aggregate, until the collectAndPublish call completes.
+     */
+    private class AggregateEventsBuffer implements DomainEventSink {
+
+        List<AggregateEvents> aggregateEvents = new ArrayList<>();
+        AggregateEvents current;
+        int eventCount;
+
+        @Override
+        public void accept(AggregateRoot<?> source, Object event) {
+            // Events of one aggregate are always drained contiguously
+            if (current == null || current.source() != source) {
+                current = new AggregateEvents(source, new ArrayList<>());
+                aggregateEvents.add(current);
+            }
+            current.events().add(event);
+            eventCount++;
+        }
+
+        @Override
+        public void complete() {
+            publishAggregateEvents(aggregateEvents, eventCount);
+        }
+    }
+
+    /**
+     * Sink publishing events as soon as they are drained, outside of a transaction. The time spent delivering
+     * them, without the draining in between, is recorded as a single publication on completion. The flight
+     * recorder event spans the whole drain, deliveries included.
+     */
+    private final class StreamingSink implements DomainEventSink {
+
+        private final DomainEventMetrics metrics = getMetrics();
+        private final PublishEvent recording = new PublishEvent();
+        private long deliveryNanos;
+        private int eventCount;
+
+        // Only filled while the flight recorder records publications, which may start before the sink completes
+        private Set<Class<?>> eventTypes;
+
+        StreamingSink() {
+            recording.begin();
+        }
+
+        @Override
+        public void accept(AggregateRoot<?> source, Object event) {
+            long startTime = metrics.isEnabled() ? System.nanoTime() : 0;
+            if (ringBuffer != null) {
+                deliverToRingBuffer(source, event);
+            } else {
+                publishEventImmediately(event);
+            }
+            if (metrics.isEnabled()) {
+                deliveryNanos += System.nanoTime() - startTime;
+            }
+            
+            eventCount++;
+            if (recording.isEnabled()) {
+                if (eventTypes == null) {
+                    eventTypes = new LinkedHashSet<>();
+                }
+                eventTypes.add(event.getClass());
+            }
+        }
+
+        @Override
+        public void complete() {
+            if (metrics.isEnabled()) {
+                metrics.recordPublication(eventCount, deliveryNanos);
+            }
+            if (recording.shouldCommit()) {
+                commit(recording, eventCount, eventTypes);
+            }
+        }
+    }
+
+    /**
+     * Buffer bound to the current transaction, keyed by the collector, shared by every collectAndPublish
+     * call of the transaction and flushed once after commit.
+     */
+    private final class TransactionEventBuffer extends AggregateEventsBuffer implements TransactionSynchronization {
+
+        @Override
+        public void complete() {
+            // Kept until the transaction completes
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(SpringDomainEventCollector.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(SpringDomainEventCollector.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            // Synchronous listeners may publish more events while we deliver, they join this flush
+            while (eventCount > 0) {
+                List<AggregateEvents> pending = aggregateEvents;
+                int pendingCount = eventCount;
+                aggregateEvents = new ArrayList<>();
+                current = null;
+                eventCount = 0;
+
+                log.debug("Transaction committed, publishing {} domain events", pendingCount);
+                deliver(pending, pendingCount);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SpringDomainEventCollector.this);
+            if (status == STATUS_ROLLED_BACK && eventCount > 0) {
+                log.debug("Transaction rolled back, discarding {} domain events", eventCount);
             }
+            aggregateEvents = List.of();
+            current = null;
+            eventCount = 0;
         }
     }
 }
@@ -0,0 +1,134 @@
+package com.ndogga.dddmolecules.autoconfiguration;
+
+import lombok.Getter;
+import lombok.Setter;
+import com.ndogga.dddmolecules.DomainEventOverflowPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration properties for domain event publishing, bound under {@code domain.events}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "domain.events")
+public class DomainEventProperties {
+
+    /**
+     * Minimum number of aggregates in a single collectAndPublish call for their events to be
+     * drained in parallel on the common fork-join pool. Zero disables parallel draining.
+     */
+    private int parallelCollectionThreshold = 0;
+
+    /**
+     * Drop superseded and duplicate events of @Coalesce annotated types per aggregate before publishing them.
+     */
+    private boolean coalescing = false;
+
+    /**
+     * How domain events are delivered to their listeners.
+     */
+    private DispatchMode dispatchMode = DispatchMode.PUBLISHER;
+
+    /**
+     * Asynchronous publishing after commit.
+     */
+    private final Async async = new Async();
+
+    /**
+     * Lock-free handoff of domain events to dispatcher threads.
+     */
+    private final RingBuffer ringBuffer = new RingBuffer();
+
+    /**
+     * Handling of events published asynchronously while the async executor or the ring buffer is full.
+     */
+    private final Overflow overflow = new Overflow();
+
+    /**
+     * Export of the domain event pipeline metrics.
+     */
+    private final Metrics metrics = new Metrics();
+
+    public enum DispatchMode {
+
+        /**
+         * Publish through Spring's ApplicationEventPublisher.
+         */
+        PUBLISHER,
+
+        /**
+         * Call plain @EventListener methods directly through a table built on context refresh,
+         * see {@link com.ndogga.dddmolecules.DirectDomainEventDispatcher}.
+         */
+        DIRECT
+
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        /**
+         * Run listeners on virtual threads after commit, in order per aggregate and in parallel across aggregates.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of pending tasks, one per aggregate per publication. Zero or less for no bound.
+         */
+        private int capacity = 10_000;
+
+    }
+
+    @Getter
+    @Setter
+    public static class RingBuffer {
+
+        /**
+         * Hand events over to dispatcher threads through a preallocated ring buffer,
+         * see {@link com.ndogga.dddmolecules.DomainEventRingBuffer}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of slots, a power of two.
+         */
+        private int capacity = 1024;
+
+        /**
+         * Number of dispatcher threads, events of one aggregate are always handled by the same one.
+         */
+        private int dispatchers = 1;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Overflow {
+
+        /**
+         * What to do with events published while asynchronous publishing is saturated.
+         */
+        private DomainEventOverflowPolicy policy = DomainEventOverflowPolicy.BLOCK;
+
+        /**
+         * Directory of the spill file used by the spill policy.
+         */
+        private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"), "dddmolecules-spill");
+
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        /**
+         * Record Micrometer metrics when Micrometer is on the classpath and a MeterRegistry is available.
+         */
+        private boolean enabled = true;
+
+    }
+
+}
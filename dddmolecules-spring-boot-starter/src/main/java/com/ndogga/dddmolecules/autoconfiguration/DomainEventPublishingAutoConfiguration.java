@@ -1,10 +1,29 @@
 package com.ndogga.dddmolecules.autoconfiguration;
 
+import com.ndogga.dddmolecules.AggregateOrderedExecutor;
+import com.ndogga.dddmolecules.DirectDomainEventDispatcher;
+import com.ndogga.dddmolecules.DomainEventBatchDispatcher;
 import com.ndogga.dddmolecules.DomainEventCollector;
+import com.ndogga.dddmolecules.DomainEventDispatcher;
+import com.ndogga.dddmolecules.DomainEventMetrics;
+import com.ndogga.dddmolecules.DomainEventCodec;
+import com.ndogga.dddmolecules.DomainEventRingBuffer;
+import com.ndogga.dddmolecules.DomainEventSpillBuffer;
+import com.ndogga.dddmolecules.DomainEventTap;
+import com.ndogga.dddmolecules.InstrumentedDomainEventDispatcher;
+import com.ndogga.dddmolecules.MicrometerDomainEventMetrics;
 import com.ndogga.dddmolecules.SpringDomainEventCollector;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 /**
  * Configuration for enabling domain event publishing through AOP.
@@ -13,6 +32,13 @@ import org.springframework.context.annotation.Bean;
  * - Enables AspectJ auto proxy for @PublishDomainEvents annotation
  * - Only activates when AspectJ is on the classpath
  * - Can be disabled via property: domain.events.aop.enabled=false
+ * - Drains large batches in parallel via property: domain.events.parallel-collection-threshold
+ * - Coalesces @Coalesce annotated events via property: domain.events.coalescing=true
+ * - Calls @EventListener methods directly via property: domain.events.dispatch-mode=direct
+ * - Runs listeners on virtual threads after commit via property: domain.events.async.enabled=true
+ * - Hands events over to dispatcher threads via property: domain.events.ring-buffer.enabled=true
+ * - Bounds asynchronous publishing via properties: domain.events.async.capacity and domain.events.overflow.policy
+ * - Records Micrometer metrics when a MeterRegistry is available, disabled via property: domain.events.metrics.enabled=false
  * <p>
  * To use this, ensure your Spring Boot application has:
  * 1. spring-boot-starter-aop dependency
@@ -20,11 +46,81 @@ import org.springframework.context.annotation.Bean;
  * 3. A DomainEventCollector bean configured
  */
 @AutoConfiguration
+@EnableConfigurationProperties(DomainEventProperties.class)
 public class DomainEventPublishingAutoConfiguration {
 
     @Bean
-    public DomainEventCollector domainEventCollector(ApplicationEventPublisher aep) {
-        return new SpringDomainEventCollector(aep);
+    @ConditionalOnProperty(prefix = "domain.events", name = "dispatch-mode", havingValue = "direct")
+    public DirectDomainEventDispatcher directDomainEventDispatcher(ApplicationContext context, ApplicationEventPublisher aep) {
+        return new DirectDomainEventDispatcher(context, aep);
     }
 
-}
\ No newline at end of file
+    @Bean
+    @ConditionalOnProperty(prefix = "domain.events.async", name = "enabled", havingValue = "true")
+    public AggregateOrderedExecutor domainEventAsyncExecutor(DomainEventProperties properties) {
+        return AggregateOrderedExecutor.virtualThreads(properties.getAsync().getCapacity());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "domain.events.overflow", name = "policy", havingValue = "spill")
+    public DomainEventSpillBuffer domainEventSpillBuffer(ApplicationContext context, DomainEventProperties properties) {
+        return new DomainEventSpillBuffer(properties.getOverflow().getSpillDirectory(), new DomainEventCodec(context.getClassLoader()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "domain.events.ring-buffer", name = "enabled", havingValue = "true")
+    public DomainEventRingBuffer domainEventRingBuffer(ApplicationEventPublisher aep, DomainEventProperties properties,
+                                                       ObjectProvider<DomainEventDispatcher> dispatcher,
+                                                       ObjectProvider<DomainEventMetrics> metrics) {
+        DomainEventDispatcher domainEventDispatcher = InstrumentedDomainEventDispatcher.instrument(
+                dispatcher.getIfAvailable(() -> aep::publishEvent), metrics.getIfAvailable(() -> DomainEventMetrics.NONE));
+        DomainEventProperties.RingBuffer ringBuffer = properties.getRingBuffer();
+        return DomainEventRingBuffer.create(ringBuffer.getCapacity(), ringBuffer.getDispatchers(),
+                (source, event) -> domainEventDispatcher.dispatch(event));
+    }
+
+    @Bean
+    public DomainEventBatchDispatcher domainEventBatchDispatcher() {
+        return new DomainEventBatchDispatcher();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(DomainEventCollector.class)
+    public DomainEventCollector domainEventCollector(ApplicationEventPublisher aep, DomainEventProperties properties,
+                                                     ObjectProvider<DomainEventDispatcher> dispatcher,
+                                                     ObjectProvider<AggregateOrderedExecutor> asyncExecutor,
+                                                     ObjectProvider<DomainEventBatchDispatcher> batchDispatcher,
+                                                     ObjectProvider<DomainEventRingBuffer> ringBuffer,
+                                                     ObjectProvider<DomainEventSpillBuffer> spillBuffer,
+                                                     ObjectProvider<DomainEventTap> tap,
+                                                     ObjectProvider<DomainEventMetrics> metrics) {
+        DomainEventMetrics domainEventMetrics = metrics.getIfAvailable(() -> DomainEventMetrics.NONE);
+        SpringDomainEventCollector collector = new SpringDomainEventCollector(InstrumentedDomainEventDispatcher.instrument(
+                dispatcher.getIfAvailable(() -> aep::publishEvent), domainEventMetrics));
+        collector.setMetrics(domainEventMetrics);
+        collector.setParallelCollectionThreshold(properties.getParallelCollectionThreshold());
+        collector.setCoalescing(properties.isCoalescing());
+        asyncExecutor.ifAvailable(collector::setAsyncExecutor);
+        batchDispatcher.ifAvailable(collector::setBatchDispatcher);
+        ringBuffer.ifAvailable(collector::setRingBuffer);
+        collector.setOverflowPolicy(properties.getOverflow().getPolicy());
+        spillBuffer.ifAvailable(collector::setSpillBuffer);
+        tap.ifAvailable(collector::setTap);
+        return collector;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "domain.events.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    static class MicrometerMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(DomainEventMetrics.class)
+        public DomainEventMetrics domainEventMetrics(ObjectProvider<MeterRegistry> registry) {
+            MeterRegistry meterRegistry = registry.getIfUnique();
+            return meterRegistry != null ? new MicrometerDomainEventMetrics(meterRegistry) : DomainEventMetrics.NONE;
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregateOrderedExecutorTest {
+
+    private AggregateOrderedExecutor executor;
+
+    @AfterEach
+    void closeExecutor() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void runsTasksOfSameKeyInSubmissionOrder() throws Exception {
+        int submitters = 4;
+        int keys = 16;
+        int tasksPerKey = 200;
+        Map<String, List<Integer>> runs = new ConcurrentHashMap<>();
+        executor = AggregateOrderedExecutor.virtualThreads(32);
+
+        ExecutorService submitting = Executors.newFixedThreadPool(submitters);
+        try {
+            List<Future<?>> submissions = new ArrayList<>();
+            for (int s = 0; s < submitters; s++) {
+                int submitter = s;
+                submissions.add(submitting.submit(() -> {
+                    for (int i = 0; i < tasksPerKey; i++) {
+                        for (int k = submitter; k < keys; k += submitters) {
+                            String key = "order-" + k;
+                            int index = i;
+                            executor.execute(key, () -> runs.computeIfAbsent(key, ignored -> new CopyOnWriteArrayList<>()).add(index));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> submission : submissions) {
+                submission.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            submitting.shutdownNow();
+        }
+        executor.close();
+
+        assertEquals(keys, runs.size());
+        for (List<Integer> indexes : runs.values()) {
+            assertEquals(tasksPerKey, indexes.size());
+            for (int i = 0; i < tasksPerKey; i++) {
+                assertEquals(i, indexes.get(i).intValue());
+            }
+        }
+        assertEquals(0, executor.getActiveLanes());
+    }
+
+    @Test
+    void refusesTasksBeyondCapacity() {
+        CountDownLatch release = new CountDownLatch(1);
+        executor = AggregateOrderedExecutor.virtualThreads(2);
+
+        assertTrue(executor.tryExecute("a", () -> await(release)));
+        assertTrue(executor.tryExecute("b", () -> await(release)));
+        assertFalse(executor.tryExecute("c", () -> {
+        }));
+        assertEquals(2, executor.getPendingTasks());
+
+        release.countDown();
+    }
+
+    @Test
+    void waitsForRoomWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch submitted = new CountDownLatch(1);
+        executor = AggregateOrderedExecutor.virtualThreads(1);
+        executor.execute("a", () -> await(release));
+
+        Thread submitter = Thread.ofVirtual().start(() -> {
+            executor.execute("b", () -> {
+            });
+            submitted.countDown();
+        });
+
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS), "execute must wait while the executor is full");
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        submitter.join();
+    }
+
+    @Test
+    void neverWaitsWhenSubmittingFromItsOwnTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> runs = new CopyOnWriteArrayList<>();
+        executor = AggregateOrderedExecutor.virtualThreads(1);
+
+        // The only permit is held by the running task, a listener raising more events must not wait for it
+        executor.execute("a", () -> {
+            runs.add("parent");
+            executor.execute("a", () -> runs.add("child-1"));
+            executor.execute("b", () -> {
+                runs.add("child-2");
+                done.countDown();
+            });
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "a task submitting into the full executor must not deadlock");
+        executor.close();
+        assertEquals(3, runs.size());
+        assertEquals("parent", runs.get(0));
+        assertEquals(0, executor.getPendingTasks());
+    }
+
+    @Test
+    void keepsTheBoundAfterSubmissionsFromItsOwnTasks() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        executor = AggregateOrderedExecutor.virtualThreads(1);
+
+        CountDownLatch nested = new CountDownLatch(1);
+        executor.execute("a", () -> executor.execute("a", nested::countDown));
+        assertTrue(nested.await(5, TimeUnit.SECONDS));
+        awaitIdle();
+
+        // The task queued beyond the bound did not leave an extra permit behind
+        assertTrue(executor.tryExecute("b", () -> await(release)));
+        assertFalse(executor.tryExecute("c", () -> {
+        }));
+        release.countDown();
+    }
+
+    @Test
+    void keepsRunningLaneAfterTaskFailure() {
+        AtomicInteger runs = new AtomicInteger();
+        executor = AggregateOrderedExecutor.virtualThreads(4);
+
+        executor.execute("a", () -> {
+            throw new IllegalStateException("listener failed");
+        });
+        executor.execute("a", runs::incrementAndGet);
+        executor.execute("a", runs::incrementAndGet);
+        executor.close();
+
+        assertEquals(2, runs.get());
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getPendingTasks() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, executor.getPendingTasks());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.config.DelegatingApplicationListener;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.support.AbstractApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectDomainEventDispatcherTest {
+
+    private ConfigurableApplicationContext context;
+    private DirectDomainEventDispatcher dispatcher;
+    private CountingPublisher publisher;
+
+    @BeforeEach
+    void startApplication() {
+        context = new SpringApplicationBuilder(TestConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        dispatcher = context.getBean(DirectDomainEventDispatcher.class);
+        publisher = context.getBean(CountingPublisher.class);
+    }
+
+    @AfterEach
+    void closeApplication() {
+        context.close();
+    }
+
+    @Test
+    void callsListenersDirectlyInSpringBootApplication() {
+        // Spring Boot registers a listener of every application event, it must not force the publisher
+        assertTrue(((AbstractApplicationContext) context).getApplicationListeners().stream()
+                .anyMatch(DelegatingApplicationListener.class::isInstance));
+
+        dispatcher.dispatch(new OrderPlaced(1));
+        dispatcher.dispatch(new OrderPlaced(2));
+
+        assertEquals(List.of(new OrderPlaced(1), new OrderPlaced(2)), context.getBean(OrderPlacedListener.class).received);
+        assertEquals(0, publisher.calls.get());
+    }
+
+    @Test
+    void publishesEventsListenedToByPayloadApplicationListeners() {
+        dispatcher.dispatch(new OrderShipped(1));
+
+        assertEquals(List.of(new OrderShipped(1)), context.getBean(OrderShippedListener.class).received);
+        assertEquals(1, publisher.calls.get());
+    }
+
+    record OrderPlaced(long orderId) {
+    }
+
+    record OrderShipped(long orderId) {
+    }
+
+    static class OrderPlacedListener {
+
+        final List<OrderPlaced> received = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void on(OrderPlaced event) {
+            received.add(event);
+        }
+    }
+
+    static class OrderShippedListener implements ApplicationListener<PayloadApplicationEvent<OrderShipped>> {
+
+        final List<OrderShipped> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onApplicationEvent(PayloadApplicationEvent<OrderShipped> event) {
+            received.add(event.getPayload());
+        }
+    }
+
+    static class CountingPublisher {
+
+        final AtomicInteger calls = new AtomicInteger();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class TestConfiguration {
+
+        @Bean
+        CountingPublisher countingPublisher() {
+            return new CountingPublisher();
+        }
+
+        @Bean
+        DirectDomainEventDispatcher directDomainEventDispatcher(ApplicationContext context, CountingPublisher publisher) {
+            return new DirectDomainEventDispatcher(context, event -> {
+                publisher.calls.incrementAndGet();
+                context.publishEvent(event);
+            });
+        }
+
+        @Bean
+        OrderPlacedListener orderPlacedListener() {
+            return new OrderPlacedListener();
+        }
+
+        @Bean
+        OrderShippedListener orderShippedListener() {
+            return new OrderShippedListener();
+        }
+
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.ndogga.dddmolecules;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainEventRingBufferTest {
+
+    private DomainEventRingBuffer ringBuffer;
+
+    @AfterEach
+    void closeRingBuffer() {
+        if (ringBuffer != null) {
+            ringBuffer.close();
+        }
+    }
+
+    @Test
+    void deliversEventsOfConcurrentProducersOnceAndInAggregateOrder() throws Exception {
+        int producers = 4;
+        int aggregatesPerProducer = 8;
+        int eventsPerAggregate = 500;
+        Map<Long, List<Integer>> received = new ConcurrentHashMap<>();
+        AtomicInteger handled = new AtomicInteger();
+        ringBuffer = DomainEventRingBuffer.create(64, 4, (source, event) -> {
+            Step step = (Step) event;
+            // Each aggregate is handled by a single dispatcher, a plain list is enough
+            received.computeIfAbsent(step.aggregateId(), id -> new ArrayList<>()).add(step.index());
+            handled.incrementAndGet();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> publications = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                publications.add(executor.submit(() -> {
+                    List<TestOrder> orders = new ArrayList<>();
+                    for (int a = 0; a < aggregatesPerProducer; a++) {
+                        orders.add(new TestOrder(producer * aggregatesPerProducer + a));
+                    }
+                    for (int i = 0; i < eventsPerAggregate; i++) {
+                        for (TestOrder order : orders) {
+                            ringBuffer.publish(order, new Step(order.getId(), i));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> publication : publications) {
+                publication.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        ringBuffer.close();
+
+        assertEquals(producers * aggregatesPerProducer * eventsPerAggregate, handled.get());
+        assertEquals(producers * aggregatesPerProducer, received.size());
+        for (List<Integer> indexes : received.values()) {
+            assertEquals(eventsPerAggregate, indexes.size());
+            for (int i = 0; i < eventsPerAggregate; i++) {
+                assertEquals(i, indexes.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    void refusesEventsOnceEverySlotIsTaken() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ringBuffer = DomainEventRingBuffer.create(4, 1, (source, event) -> await(release));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.tryPublish(null, "event-" + i));
+        }
+
+        assertFalse(ringBuffer.tryPublish(null, "overflow"));
+        assertEquals(4, ringBuffer.getPendingEvents());
+
+        release.countDown();
+        ringBuffer.close();
+        assertEquals(0, ringBuffer.getPendingEvents());
+    }
+
+    @Test
+    void reusesSlotsOnceDispatched() {
+        AtomicInteger handled = new AtomicInteger();
+        ringBuffer = DomainEventRingBuffer.create(2, 2, (source, event) -> handled.incrementAndGet());
+
+        for (int i = 0; i < 10_000; i++) {
+            ringBuffer.publish(new TestOrder(i % 7), "event-" + i);
+        }
+        ringBuffer.close();
+
+        assertEquals(10_000, handled.get());
+    }
+
+    @Test
+    void handlesEventsPublishedByFullDispatcherItself() throws InterruptedException {
+        int parents = 8;
+        int childrenPerParent = 8;
+        CountDownLatch children = new CountDownLatch(parents * childrenPerParent);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        DomainEventRingBuffer[] self = new DomainEventRingBuffer[1];
+        ringBuffer = DomainEventRingBuffer.create(2, 1, (source, event) -> {
+            received.add(event);
+            if (event instanceof Step parent) {
+                // A listener raising events of its own while the buffer is full
+                for (int i = 0; i < childrenPerParent; i++) {
+                    self[0].publish(source, "child-" + parent.index() + "-" + i);
+                }
+            } else {
+                children.countDown();
+            }
+        });
+        self[0] = ringBuffer;
+
+        for (int i = 0; i < parents; i++) {
+            ringBuffer.publish(new TestOrder(1), new Step(1, i));
+        }
+
+        assertTrue(children.await(10, TimeUnit.SECONDS), "a dispatcher publishing into the full buffer must not deadlock");
+        assertEquals(parents * (childrenPerParent + 1), received.size());
+    }
+
+    @Test
+    void handsPendingEventsOverBeforeClosing() {
+        List<Object> received = new CopyOnWriteArrayList<>();
+        ringBuffer = DomainEventRingBuffer.create(1024, 2, (source, event) -> {
+            sleep();
+            received.add(event);
+        });
+
+        for (int i = 0; i < 20; i++) {
+            ringBuffer.publish(null, i);
+        }
+        ringBuffer.close();
+
+        assertEquals(20, received.size());
+        assertThrows(IllegalStateException.class, () -> ringBuffer.publish(null, "late"));
+    }
+
+    @Test
+    void keepsDispatchingAfterHandlerFailures() {
+        AtomicInteger handled = new AtomicInteger();
+        ringBuffer = DomainEventRingBuffer.create(8, 1, (source, event) -> {
+            if ((int) event % 2 == 0) {
+                throw new IllegalStateException("listener failed");
+            }
+            handled.incrementAndGet();
+        });
+
+        for (int i = 0; i < 100; i++) {
+            ringBuffer.publish(null, i);
+        }
+        ringBuffer.close();
+
+        assertEquals(50, handled.get());
+    }
+
+    @Test
+    void parksIdleDispatchersUntilEventsArePublished() throws InterruptedException {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch handled = new CountDownLatch(4);
+        ringBuffer = new DomainEventRingBuffer(8, 2, (source, event) -> handled.countDown(), task -> {
+            Thread thread = Thread.ofPlatform().daemon(true).unstarted(task);
+            threads.add(thread);
+            return thread;
+        });
+
+        awaitParked(threads);
+        for (long id = 0; id < 4; id++) {
+            ringBuffer.publish(new TestOrder(id), id);
+        }
+        assertTrue(handled.await(10, TimeUnit.SECONDS), "a parked dispatcher must be woken by a published event");
+
+        awaitParked(threads);
+        ringBuffer.close();
+        for (Thread thread : threads) {
+            assertFalse(thread.isAlive(), "closing must wake parked dispatchers");
+        }
+    }
+
+    @Test
+    void rejectsCapacitiesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> DomainEventRingBuffer.create(3, 1, (source, event) -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> DomainEventRingBuffer.create(4, 0, (source, event) -> {
+        }));
+    }
+
+    record Step(long aggregateId, int index) {
+    }
+
+    static class TestOrder extends AggregateRoot<Long> {
+
+        private final Long id;
+
+        TestOrder(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Parked without timeout once spinning and yielding are exhausted
+    private static void awaitParked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline, "idle dispatchers must park until events are published");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
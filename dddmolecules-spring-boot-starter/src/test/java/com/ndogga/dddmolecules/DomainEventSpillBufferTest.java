@@ -0,0 +1,207 @@
+package com.ndogga.dddmolecules;
+
+import com.ndogga.dddmolecules.DomainEventSpillBuffer.SpilledEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainEventSpillBufferTest {
+
+    @TempDir
+    Path directory;
+
+    private DomainEventSpillBuffer spillBuffer;
+
+    @AfterEach
+    void closeSpillBuffer() {
+        if (spillBuffer != null) {
+            spillBuffer.close();
+        }
+    }
+
+    @Test
+    void pollsEventsInSpillOrderWithTheirOrderingKey() {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+
+        spillBuffer.append(7, List.of(new OrderPlaced(1), new OrderShipped(1)));
+        spillBuffer.append(null, List.of(new OrderPlaced(2)));
+        spillBuffer.append(-3, List.of(new OrderPlaced(3)));
+
+        assertEquals(4, spillBuffer.getPendingEvents());
+        assertEquals(List.of(new SpilledEvent(7, new OrderPlaced(1)), new SpilledEvent(7, new OrderShipped(1)),
+                new SpilledEvent(null, new OrderPlaced(2))), spillBuffer.poll(3));
+        assertEquals(List.of(new SpilledEvent(-3, new OrderPlaced(3))), spillBuffer.poll(3));
+        assertEquals(0, spillBuffer.getPendingEvents());
+    }
+
+    @Test
+    void tracksWhetherItIsBeingDrained() {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+        assertFalse(spillBuffer.isDraining());
+
+        // Only the append finding the buffer idle must start a consumer
+        assertTrue(spillBuffer.append(1, List.of(new OrderPlaced(1))));
+        assertFalse(spillBuffer.append(1, List.of(new OrderPlaced(2))));
+        assertTrue(spillBuffer.isDraining());
+
+        assertEquals(2, spillBuffer.poll(10).size());
+        assertTrue(spillBuffer.isDraining());
+        assertEquals(List.of(), spillBuffer.poll(10));
+        assertFalse(spillBuffer.isDraining());
+
+        assertTrue(spillBuffer.append(1, List.of(new OrderPlaced(3))));
+    }
+
+    @Test
+    void reusesTheFileOnceFullyRead() throws Exception {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+        spillBuffer.append(1, List.of(new OrderPlaced(1), new OrderPlaced(2)));
+        spillBuffer.poll(10);
+        spillBuffer.poll(10);
+
+        assertEquals(0, Files.size(spillFile()));
+
+        spillBuffer.append(2, List.of(new OrderPlaced(3)));
+        assertEquals(List.of(new SpilledEvent(2, new OrderPlaced(3))), spillBuffer.poll(10));
+    }
+
+    @Test
+    void appendsAllOrNoneOfTheEvents() {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+
+        assertThrows(IllegalArgumentException.class, () -> spillBuffer.append(1, List.of(new OrderPlaced(1), "not a record")));
+
+        assertEquals(0, spillBuffer.getPendingEvents());
+        assertFalse(spillBuffer.isDraining());
+    }
+
+    @Test
+    void skipsEventsThatCannotBeDecoded() {
+        spillBuffer = new DomainEventSpillBuffer(directory, new DomainEventCodec() {
+            @Override
+            public Object decode(ByteBuffer source) {
+                Object event = super.decode(source);
+                if (event instanceof OrderShipped) {
+                    throw new IllegalStateException("Domain event type changed since it was spilled");
+                }
+                return event;
+            }
+        });
+
+        spillBuffer.append(1, List.of(new OrderPlaced(1), new OrderShipped(1), new OrderPlaced(2)));
+        spillBuffer.append(2, List.of(new OrderShipped(2), new OrderShipped(3)));
+
+        assertEquals(List.of(new SpilledEvent(1, new OrderPlaced(1)), new SpilledEvent(1, new OrderPlaced(2))), spillBuffer.poll(10));
+        // A batch of undecodable events reads through to the end rather than looking empty early
+        assertEquals(List.of(), spillBuffer.poll(10));
+        assertEquals(0, spillBuffer.getPendingEvents());
+        assertFalse(spillBuffer.isDraining());
+    }
+
+    @Test
+    void discardsPendingEvents() {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+        spillBuffer.append(1, List.of(new OrderPlaced(1), new OrderPlaced(2), new OrderPlaced(3)));
+        spillBuffer.poll(1);
+
+        assertEquals(2, spillBuffer.discard());
+
+        assertEquals(0, spillBuffer.getPendingEvents());
+        assertFalse(spillBuffer.isDraining());
+        assertTrue(spillBuffer.append(1, List.of(new OrderPlaced(4))));
+        assertEquals(List.of(new SpilledEvent(1, new OrderPlaced(4))), spillBuffer.poll(10));
+    }
+
+    @Test
+    void keepsEveryEventOfConcurrentAppendsInOrder() throws Exception {
+        int producers = 4;
+        int appendsPerProducer = 500;
+        spillBuffer = new DomainEventSpillBuffer(directory);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> appends = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                appends.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < appendsPerProducer; i++) {
+                        spillBuffer.append(producer, List.of(new OrderPlaced(i), new OrderShipped(i)));
+                    }
+                    return null;
+                }));
+            }
+
+            // Polled concurrently, like the replay thread does
+            Map<Integer, List<Object>> polled = new HashMap<>();
+            start.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            int expected = producers * appendsPerProducer * 2;
+            int count = 0;
+            while (count < expected && System.nanoTime() < deadline) {
+                for (SpilledEvent spilled : spillBuffer.poll(64)) {
+                    polled.computeIfAbsent(spilled.orderingKey(), key -> new ArrayList<>()).add(spilled.event());
+                    count++;
+                }
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+
+            assertEquals(expected, count);
+            for (int p = 0; p < producers; p++) {
+                List<Object> events = polled.get(p);
+                for (int i = 0; i < appendsPerProducer; i++) {
+                    assertEquals(new OrderPlaced(i), events.get(i * 2));
+                    assertEquals(new OrderShipped(i), events.get(i * 2 + 1));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deletesTheFileOnClose() throws Exception {
+        spillBuffer = new DomainEventSpillBuffer(directory);
+        spillBuffer.append(1, List.of(new OrderPlaced(1)));
+        Path file = spillFile();
+
+        spillBuffer.close();
+        spillBuffer = null;
+
+        assertFalse(Files.exists(file));
+    }
+
+    record OrderPlaced(long orderId) {
+    }
+
+    record OrderShipped(long orderId) {
+    }
+
+    private Path spillFile() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+}
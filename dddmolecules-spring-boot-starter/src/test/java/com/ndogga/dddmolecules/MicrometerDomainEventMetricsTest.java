@@ -0,0 +1,60 @@
+package com.ndogga.dddmolecules;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicrometerDomainEventMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerDomainEventMetrics metrics = new MicrometerDomainEventMetrics(registry);
+
+    @Test
+    void keepsGaugesAndCountersOfCollectedSuppliers() {
+        // Method references only reachable from the meters, as registered by SpringDomainEventCollector
+        SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) event -> {
+        });
+        collector.setMetrics(metrics);
+        collector = null;
+        metrics.registerGauge("test.depth", () -> 3);
+        metrics.registerCounter("test.count", () -> 5);
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        assertEquals(3.0, registry.get("test.depth").gauge().value());
+        assertEquals(5.0, registry.get("test.count").functionCounter().count());
+        assertEquals(0.0, registry.get("domain.events.queue.depth").gauge().value());
+        assertEquals(0.0, registry.get("domain.events.overflows").functionCounter().count());
+    }
+
+    @Test
+    void tagsMetersWithTheFullyQualifiedEventType() {
+        metrics.recordEvent(Orders.Placed.class);
+        metrics.recordEvent(Payments.Placed.class);
+        metrics.recordEvent(Payments.Placed.class);
+        metrics.recordListener(Orders.Placed.class, 1_000, false);
+        metrics.recordListener(Payments.Placed.class, 1_000, true);
+
+        assertEquals(1.0, registry.get("domain.events.collected").tag("type", Orders.Placed.class.getName()).counter().count());
+        assertEquals(2.0, registry.get("domain.events.collected").tag("type", Payments.Placed.class.getName()).counter().count());
+        assertEquals(1, registry.get("domain.events.listener")
+                .tags("type", Orders.Placed.class.getName(), "outcome", "success").timer().count());
+        assertEquals(1, registry.get("domain.events.listener")
+                .tags("type", Payments.Placed.class.getName(), "outcome", "failure").timer().count());
+    }
+
+    static class Orders {
+
+        record Placed(long orderId) {
+        }
+    }
+
+    static class Payments {
+
+        record Placed(long paymentId) {
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.ndogga.dddmolecules;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpringDomainEventCollectorTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    private final List<Object> dispatched = new CopyOnWriteArrayList<>();
+    private final List<List<Object>> tapped = new CopyOnWriteArrayList<>();
+    private final SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) dispatched::add);
+
+    @AfterEach
+    void clearTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tapsEventsOfEachPublicationWithoutTransaction() {
+        collector.setTap(events -> tapped.add(List.copyOf(events)));
+
+        collector.collectAndPublish(List.of(new TestOrder(1).place(), new TestOrder(2).place()));
+
+        assertEquals(List.of(List.of(new OrderPlaced(1), new OrderPlaced(2))), tapped);
+        assertEquals(List.of(new OrderPlaced(1), new OrderPlaced(2)), dispatched);
+    }
+
+    @Test
+    void tapsEventsOnceTransactionCommits() {
+        collector.setTap(events -> tapped.add(List.copyOf(events)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        collector.collectAndPublish(new TestOrder(1).place());
+        collector.collectAndPublish(new TestOrder(2).place());
+        assertEquals(List.of(), tapped);
+
+        complete(true);
+
+        assertEquals(List.of(List.of(new OrderPlaced(1), new OrderPlaced(2))), tapped);
+        assertEquals(List.of(new OrderPlaced(1), new OrderPlaced(2)), dispatched);
+    }
+
+    @Test
+    void doesNotTapEventsOfRolledBackTransaction() {
+        collector.setTap(events -> tapped.add(List.copyOf(events)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        collector.collectAndPublish(new TestOrder(1).place());
+
+        complete(false);
+
+        assertEquals(List.of(), tapped);
+        assertEquals(List.of(), dispatched);
+    }
+
+    @Test
+    void publishesEventsWhenTapFails() {
+        collector.setTap(events -> {
+            throw new IllegalStateException("journal unavailable");
+        });
+
+        collector.collectAndPublish(new TestOrder(1).place());
+
+        assertEquals(List.of(new OrderPlaced(1)), dispatched);
+    }
+
+    @Test
+    void timesEventsStreamedToTheirListeners() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) event -> sleep());
+        collector.setMetrics(metrics);
+
+        collector.collectAndPublish(List.of(new TestOrder(1).place(), new TestOrder(2).place()));
+
+        // One publication for the call, timing the listeners only
+        assertEquals(List.of(2), metrics.publishedEvents);
+        assertTrue(metrics.publicationNanos.get(0) >= TimeUnit.MILLISECONDS.toNanos(4));
+        assertTrue(metrics.publicationNanos.get(0) <= metrics.collectionNanos.get(0));
+    }
+
+    @Test
+    void recordsPublicationsWhenRecordingStartsMidStream() throws IOException {
+        Recording[] recording = new Recording[1];
+        SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) event -> {
+            // Profiling starts once the drain and its sink are open, their events were disabled when they began
+            if (recording[0] == null) {
+                recording[0] = new Recording();
+                recording[0].enable("com.ndogga.dddmolecules.Publish");
+                recording[0].enable("com.ndogga.dddmolecules.Collect");
+                recording[0].start();
+            }
+        });
+
+        Path file = spillDirectory.resolve("publications.jfr");
+        try {
+            collector.collectAndPublish(List.of(new TestOrder(1).place(), new TestOrder(2).place()));
+            recording[0].stop();
+            recording[0].dump(file);
+        } finally {
+            recording[0].close();
+        }
+
+        List<String> recorded = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            recorded.add(event.getEventType().getName() + ":" + event.getString("eventTypes"));
+        }
+        assertTrue(recorded.contains("com.ndogga.dddmolecules.Publish:OrderPlaced"), recorded.toString());
+        assertTrue(recorded.contains("com.ndogga.dddmolecules.Collect:OrderPlaced"), recorded.toString());
+    }
+
+    @Test
+    void replaysSpilledEventsOntoThePartitionOfTheirAggregate() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        Map<Long, Set<String>> dispatcherThreads = new ConcurrentHashMap<>();
+        DomainEventRingBuffer ringBuffer = DomainEventRingBuffer.create(4, 2, (source, event) -> {
+            if (event instanceof Blocker) {
+                await(release);
+            } else if (event instanceof LineAdded line) {
+                dispatcherThreads.computeIfAbsent(line.orderId(), id -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+            }
+            received.add(event);
+        });
+        DomainEventSpillBuffer spillBuffer = new DomainEventSpillBuffer(spillDirectory);
+        collector.setRingBuffer(ringBuffer);
+        collector.setOverflowPolicy(DomainEventOverflowPolicy.SPILL);
+        collector.setSpillBuffer(spillBuffer);
+
+        try {
+            collector.collectAndPublish(new TestOrder(0).block());
+            List<TestOrder> orders = List.of(new TestOrder(1), new TestOrder(2), new TestOrder(3), new TestOrder(4));
+            for (int i = 0; i < 50; i++) {
+                for (TestOrder order : orders) {
+                    collector.collectAndPublish(order.addLine(i));
+                }
+            }
+            assertTrue(collector.getOverflowCount() > 0);
+
+            release.countDown();
+            awaitUntil(() -> received.size() == 1 + 50 * orders.size());
+
+            for (TestOrder order : orders) {
+                // Spilled or not, the events of an aggregate are handled by the dispatcher of its partition
+                assertEquals(1, dispatcherThreads.get(order.getId()).size());
+                List<Object> lines = received.stream()
+                        .filter(event -> event instanceof LineAdded line && line.orderId() == order.getId())
+                        .toList();
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(new LineAdded(order.getId(), i), lines.get(i));
+                }
+            }
+        } finally {
+            ringBuffer.close();
+            spillBuffer.close();
+        }
+    }
+
+    @Test
+    void replaysSpilledEventsOntoTheLaneOfTheirAggregate() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) event -> {
+            if (event instanceof Blocker) {
+                await(release);
+            }
+            received.add(event);
+        });
+        AggregateOrderedExecutor asyncExecutor = AggregateOrderedExecutor.virtualThreads(2);
+        DomainEventSpillBuffer spillBuffer = new DomainEventSpillBuffer(spillDirectory);
+        collector.setAsyncExecutor(asyncExecutor);
+        collector.setOverflowPolicy(DomainEventOverflowPolicy.SPILL);
+        collector.setSpillBuffer(spillBuffer);
+
+        try {
+            TestOrder order = new TestOrder(1);
+            // Queued in memory behind the blocked task of the same aggregate, the lines after it are spilled
+            collector.collectAndPublish(order.block());
+            for (int i = 0; i < 50; i++) {
+                collector.collectAndPublish(order.addLine(i));
+            }
+            assertTrue(collector.getSpilledEvents() > 0);
+
+            release.countDown();
+            awaitUntil(() -> received.size() == 51);
+
+            assertEquals(new Blocker(1), received.get(0));
+            for (int i = 0; i < 50; i++) {
+                assertEquals(new LineAdded(1, i), received.get(i + 1));
+            }
+        } finally {
+            asyncExecutor.close();
+            spillBuffer.close();
+        }
+    }
+
+    @Test
+    void discardsSpilledEventsWhenReplayFails() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SpringDomainEventCollector collector = new SpringDomainEventCollector((DomainEventDispatcher) event -> {
+            if (event instanceof Blocker) {
+                await(release);
+            }
+        });
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        AggregateOrderedExecutor asyncExecutor = new AggregateOrderedExecutor(executorService, 1);
+        DomainEventSpillBuffer spillBuffer = new DomainEventSpillBuffer(spillDirectory);
+        collector.setAsyncExecutor(asyncExecutor);
+        collector.setOverflowPolicy(DomainEventOverflowPolicy.SPILL);
+        collector.setSpillBuffer(spillBuffer);
+
+        try {
+            collector.collectAndPublish(new TestOrder(1).block());
+            collector.collectAndPublish(new TestOrder(2).addLine(0));
+            collector.collectAndPublish(new TestOrder(2).addLine(1));
+            assertTrue(spillBuffer.isDraining());
+
+            // The replay cannot hand events over anymore
+            executorService.shutdown();
+            release.countDown();
+            awaitUntil(() -> !spillBuffer.isDraining());
+
+            assertEquals(0, spillBuffer.getPendingEvents());
+            assertFalse(spillBuffer.isDraining());
+        } finally {
+            spillBuffer.close();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        TransactionSynchronizationManager.clearSynchronization();
+        if (commit) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        int status = commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    static class RecordingMetrics implements DomainEventMetrics {
+
+        final List<Integer> publishedEvents = new CopyOnWriteArrayList<>();
+        final List<Long> publicationNanos = new CopyOnWriteArrayList<>();
+        final List<Long> collectionNanos = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void recordCollection(int aggregateCount, int eventCount, long durationNanos) {
+            collectionNanos.add(durationNanos);
+        }
+
+        @Override
+        public void recordPublication(int eventCount, long durationNanos) {
+            publishedEvents.add(eventCount);
+            publicationNanos.add(durationNanos);
+        }
+    }
+
+    record OrderPlaced(long orderId) {
+    }
+
+    record LineAdded(long orderId, int index) {
+    }
+
+    record Blocker(long orderId) {
+    }
+
+    static class TestOrder extends AggregateRoot<Long> {
+
+        private final Long id;
+
+        TestOrder(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        TestOrder place() {
+            registerEvent(new OrderPlaced(id));
+            return this;
+        }
+
+        TestOrder addLine(int index) {
+            registerEvent(new LineAdded(id, index));
+            return this;
+        }
+
+        TestOrder block() {
+            registerEvent(new Blocker(id));
+            return this;
+        }
+    }
+}
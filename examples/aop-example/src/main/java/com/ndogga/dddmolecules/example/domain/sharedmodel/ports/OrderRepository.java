@@ -2,8 +2,10 @@ package com.ndogga.dddmolecules.example.domain.sharedmodel.ports;
 
 import java.util.Optional;
 
+import com.ndogga.dddmolecules.TrackAggregates;
 import com.ndogga.dddmolecules.example.domain.writemodel.entities.Order;
 
+@TrackAggregates
 public interface OrderRepository {
 
     void save(Order order);
@@ -1,9 +1,9 @@
 package com.ndogga.dddmolecules.example.infrastructure;
 
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.stereotype.Component;
 
@@ -19,7 +19,7 @@ import org.jmolecules.ddd.annotation.Service;
 @Component
 public class InMemoryOrderRepository implements OrderRepository, OrderViewRepository {
 
-  private final Map<String, Order> orders = new HashMap<>();
+  private final Map<String, Order> orders = new ConcurrentHashMap<>();
 
   @Override
   public void save(Order order) {
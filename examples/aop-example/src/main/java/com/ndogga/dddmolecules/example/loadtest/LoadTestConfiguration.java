@@ -0,0 +1,29 @@
+package com.ndogga.dddmolecules.example.loadtest;
+
+import com.ndogga.dddmolecules.example.domain.sharedmodel.services.OrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the load test harness when {@code load-test.enabled=true}. The phase metrics are picked up by
+ * the domain event auto-configuration, instead of the Micrometer metrics.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "load-test", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestConfiguration {
+
+    @Bean
+    PhaseLatencyMetrics phaseLatencyMetrics() {
+        return new PhaseLatencyMetrics();
+    }
+
+    @Bean
+    LoadTestRunner loadTestRunner(OrderService orderService, PhaseLatencyMetrics metrics,
+                                  LoadTestProperties properties) {
+        return new LoadTestRunner(orderService, metrics, properties);
+    }
+
+}
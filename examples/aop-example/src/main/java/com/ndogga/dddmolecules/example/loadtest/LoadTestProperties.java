@@ -0,0 +1,48 @@
+package com.ndogga.dddmolecules.example.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of the load test harness, bound under {@code load-test}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "load-test")
+public class LoadTestProperties {
+
+    /**
+     * Run the load test instead of the example scenario.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of platform threads placing orders concurrently, zero to skip the platform thread run.
+     */
+    private int platformThreads = 64;
+
+    /**
+     * Number of virtual threads placing orders concurrently, zero to skip the virtual thread run.
+     */
+    private int virtualThreads = 10_000;
+
+    /**
+     * Duration of the warmup of each run, its measurements are discarded.
+     */
+    private Duration warmup = Duration.ofSeconds(10);
+
+    /**
+     * Duration of the measurement of each run.
+     */
+    private Duration duration = Duration.ofSeconds(30);
+
+    /**
+     * Directory the percentile reports are written to, one subdirectory per run.
+     */
+    private Path outputDirectory = Path.of("build", "load-test");
+
+}
@@ -0,0 +1,157 @@
+package com.ndogga.dddmolecules.example.loadtest;
+
+import com.ndogga.dddmolecules.example.domain.sharedmodel.services.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.CommandLineRunner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator placing orders and confirming their payment through {@link OrderService},
+ * first from platform threads, then from virtual threads.
+ * <p>
+ * Each thread repeatedly places an order then confirms its payment, recording the latency of both calls.
+ * Together with the phases recorded by {@link PhaseLatencyMetrics}, the latencies are written per run to
+ * {@code <output-directory>/<run>/}: one HdrHistogram percentile distribution per histogram, in microseconds,
+ * and a summary with the throughput and the main percentiles.
+ * <p>
+ * Each thread waits for its calls to complete before issuing the next one, so the latencies are those seen
+ * at the throughput the application sustains, not at a fixed arrival rate. Orders are kept in memory,
+ * the heap must hold every order placed during the run.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoadTestRunner implements CommandLineRunner {
+
+    private static final List<OrderService.ProductQuantity> PRODUCTS = List.of(
+            new OrderService.ProductQuantity("product-1", 1),
+            new OrderService.ProductQuantity("product-2", 2),
+            new OrderService.ProductQuantity("product-3", 1)
+    );
+
+    private final OrderService orderService;
+    private final PhaseLatencyMetrics metrics;
+    private final LoadTestProperties properties;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (properties.getPlatformThreads() > 0) {
+            run("platform", properties.getPlatformThreads(), Thread.ofPlatform().name("load-platform-", 0).factory());
+        }
+        if (properties.getVirtualThreads() > 0) {
+            run("virtual", properties.getVirtualThreads(), Thread.ofVirtual().name("load-virtual-", 0).factory());
+        }
+    }
+
+    private void run(String name, int threads, ThreadFactory threadFactory) throws InterruptedException {
+        log.info("Warming up {} threads for {}", name, properties.getWarmup());
+        drive(threads, threadFactory, properties.getWarmup());
+        metrics.reset();
+
+        log.info("Running {} {} threads for {}", threads, name, properties.getDuration());
+        Run run = drive(threads, threadFactory, properties.getDuration());
+
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put("place-order", run.placeOrder());
+        histograms.put("confirm-payment", run.confirmPayment());
+        histograms.putAll(metrics.getHistograms());
+
+        report(name, threads, run, histograms);
+    }
+
+    private Run drive(int threads, ThreadFactory threadFactory, Duration duration) throws InterruptedException {
+        Histogram placeOrder = PhaseLatencyMetrics.newHistogram();
+        Histogram confirmPayment = PhaseLatencyMetrics.newHistogram();
+        LongAdder errors = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+
+        long startTime;
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(threadFactory)) {
+            for (int i = 0; i < threads; i++) {
+                String customerId = "customer-" + i;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long deadline = System.nanoTime() + duration.toNanos();
+                    while (System.nanoTime() < deadline) {
+                        placeAndConfirm(customerId, placeOrder, confirmPayment, errors);
+                    }
+                });
+            }
+            startTime = System.nanoTime();
+            start.countDown();
+        }
+        return new Run(placeOrder, confirmPayment, errors.sum(), System.nanoTime() - startTime);
+    }
+
+    private void placeAndConfirm(String customerId, Histogram placeOrder, Histogram confirmPayment, LongAdder errors) {
+        try {
+            long startTime = System.nanoTime();
+            String orderId = orderService.placeOrder(new OrderService.PlaceOrderRequest(customerId, PRODUCTS));
+            long placedTime = System.nanoTime();
+            placeOrder.recordValue(placedTime - startTime);
+
+            orderService.receivePaymentConfirmation(orderId);
+            confirmPayment.recordValue(System.nanoTime() - placedTime);
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.debug("Load test call failed", e);
+        }
+    }
+
+    private void report(String name, int threads, Run run, Map<String, Histogram> histograms) {
+        Path directory = properties.getOutputDirectory().resolve(name);
+        long operations = run.placeOrder().getTotalCount() + run.confirmPayment().getTotalCount();
+        double throughput = operations / (run.elapsedNanos() / 1_000_000_000.0);
+
+        StringBuilder summary = new StringBuilder()
+                .append(String.format("run: %s, threads: %d, duration: %.1f s%n", name, threads, run.elapsedNanos() / 1_000_000_000.0))
+                .append(String.format("operations: %d, errors: %d, throughput: %.0f ops/s%n%n", operations, run.errors(), throughput))
+                .append(String.format("%-16s %10s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "p50", "p90", "p99", "p99.9", "max"));
+        histograms.forEach((histogramName, histogram) -> summary.append(String.format("%-16s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                histogramName, histogram.getTotalCount(),
+                micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMaxValue()))));
+
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("summary.txt"), summary);
+            for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(histogram.getKey() + ".hgrm")))) {
+                    histogram.getValue().outputPercentileDistribution(out, 1_000.0);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write load test report to " + directory, e);
+        }
+
+        log.info("Load test report written to {}\n{}", directory.toAbsolutePath(), summary);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private record Run(Histogram placeOrder, Histogram confirmPayment, long errors, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.ndogga.dddmolecules.example.loadtest;
+
+import com.ndogga.dddmolecules.DomainEventMetrics;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link DomainEventMetrics} splitting each `@PublishDomainEvents` call into its phases, in nanoseconds:
+ * - interception: the intercepted method, repository tracking and the aspect itself
+ * - collection: draining the events from the tracked aggregates
+ * - publication: delivering the events to their listeners
+ * <p>
+ * The pipeline reports nested durations on the calling thread, publication within collection within the scope,
+ * so each phase is the reported duration minus the one nested in it. Events streamed to their listeners as they
+ * are drained are reported as one publication summing their deliveries, so listener time lands in publication.
+ * This holds as long as events are published on the calling thread, i.e. without transaction synchronization.
+ */
+public class PhaseLatencyMetrics implements DomainEventMetrics {
+
+    private final Histogram interception = newHistogram();
+    private final Histogram collection = newHistogram();
+    private final Histogram publication = newHistogram();
+
+    // Nested durations of the current scope: collection, publication, then the number of publications
+    private final ThreadLocal<long[]> nested = ThreadLocal.withInitial(() -> new long[3]);
+
+    static Histogram newHistogram() {
+        return new ConcurrentHistogram(3);
+    }
+
+    @Override
+    public void recordPublication(int eventCount, long durationNanos) {
+        long[] durations = nested.get();
+        durations[1] += durationNanos;
+        durations[2]++;
+    }
+
+    @Override
+    public void recordCollection(int aggregateCount, int eventCount, long durationNanos) {
+        long[] durations = nested.get();
+        collection.recordValue(Math.max(0, durationNanos - durations[1]));
+        // A collection without events publishes nothing, it must not skew the publication percentiles
+        if (durations[2] > 0) {
+            publication.recordValue(durations[1]);
+        }
+        durations[0] += durationNanos;
+        durations[1] = 0;
+        durations[2] = 0;
+    }
+
+    @Override
+    public void recordScope(int trackedAggregates, long durationNanos) {
+        long[] durations = nested.get();
+        interception.recordValue(Math.max(0, durationNanos - durations[0]));
+        durations[0] = 0;
+        durations[1] = 0;
+        durations[2] = 0;
+    }
+
+    /**
+     * Get the phase histograms.
+     * @return the histograms by phase name
+     */
+    public Map<String, Histogram> getHistograms() {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        histograms.put("interception", interception);
+        histograms.put("collection", collection);
+        histograms.put("publication", publication);
+        return histograms;
+    }
+
+    /**
+     * Discard every recorded value, e.g. after the warmup.
+     */
+    public void reset() {
+        interception.reset();
+        collection.reset();
+        publication.reset();
+    }
+}
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
@@ -23,6 +24,7 @@ public class ExampleApplication {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "load-test", name = "enabled", havingValue = "false", matchIfMissing = true)
     CommandLineRunner runner(OrderService orderService) {
         return (args) -> {
             OrderService.PlaceOrderRequest request = new OrderService.PlaceOrderRequest(